@@ -0,0 +1,170 @@
+package com.javalaabs.webflux.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内近端缓存（L1）
+ * 基于 ConcurrentHashMap 的有界缓存，支持容量上限（按插入顺序淘汰）和 TTL 过期，
+ * 读写路径均无全局锁，并统计命中、未命中和淘汰次数
+ */
+public class NearCache<K, V> {
+    
+    private final ConcurrentHashMap<K, Entry<K, V>> entries;
+    private final ConcurrentLinkedQueue<Entry<K, V>> insertionOrder;
+    private final AtomicInteger queuedEntries;
+    private final AtomicBoolean purging;
+    private final int maxSize;
+    private final long ttlNanos;
+    
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    
+    public NearCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+        this.insertionOrder = new ConcurrentLinkedQueue<>();
+        this.queuedEntries = new AtomicInteger();
+        this.purging = new AtomicBoolean();
+    }
+    
+    /**
+     * 读取缓存，过期条目视为未命中并被移除
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            if (entries.remove(key, entry)) {
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value;
+    }
+    
+    /**
+     * 读取缓存但不计入命中统计
+     */
+    public V peek(K key) {
+        Entry<K, V> entry = entries.get(key);
+        return entry != null && !entry.isExpired(System.nanoTime()) ? entry.value : null;
+    }
+    
+    /**
+     * 写入缓存，超过容量时淘汰最早写入的条目
+     */
+    public void put(K key, V value) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        Entry<K, V> existing = entries.get(key);
+        if (existing != null) {
+            // 原地刷新，避免在淘汰队列中产生重复节点
+            existing.refresh(value, expiresAt);
+            return;
+        }
+        
+        Entry<K, V> entry = new Entry<>(key, value, expiresAt);
+        Entry<K, V> raced = entries.putIfAbsent(key, entry);
+        if (raced != null) {
+            raced.refresh(value, expiresAt);
+            return;
+        }
+        
+        insertionOrder.offer(entry);
+        queuedEntries.incrementAndGet();
+        evictIfNecessary();
+    }
+    
+    /**
+     * 使指定键失效
+     */
+    public boolean invalidate(K key) {
+        return entries.remove(key) != null;
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+    
+    public long getMissCount() {
+        return missCount.sum();
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+    
+    private void evictIfNecessary() {
+        while (entries.size() > maxSize) {
+            Entry<K, V> oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            queuedEntries.decrementAndGet();
+            if (entries.remove(oldest.key, oldest)) {
+                evictionCount.increment();
+            }
+        }
+        
+        // 失效或过期的条目会在队列中留下失效节点，积累过多时统一清理
+        if (queuedEntries.get() > maxSize * 2 && purging.compareAndSet(false, true)) {
+            try {
+                insertionOrder.removeIf(node -> {
+                    boolean stale = entries.get(node.key) != node;
+                    if (stale) {
+                        queuedEntries.decrementAndGet();
+                    }
+                    return stale;
+                });
+            } finally {
+                purging.set(false);
+            }
+        }
+    }
+    
+    private static final class Entry<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long expiresAt;
+        
+        private Entry(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+        
+        private void refresh(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+        
+        private boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.javalaabs.webflux.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 概率提前刷新策略（XFetch）
+ * 缓存剩余存活时间越短、重建耗时越长，触发提前刷新的概率越高：
+ * delta * beta * -ln(random) >= ttlRemaining 时刷新，
+ * 使热点键在真正过期前由少数请求在后台重建，避免过期瞬间的缓存击穿
+ */
+public class ProbabilisticEarlyRefresh {
+    
+    private final boolean enabled;
+    private final double beta;
+    
+    // 重建耗时的指数加权移动平均（纳秒）
+    private final AtomicLong recomputeNanos = new AtomicLong();
+    private final LongAdder refreshCount = new LongAdder();
+    
+    public ProbabilisticEarlyRefresh(boolean enabled, double beta) {
+        this.enabled = enabled;
+        this.beta = beta;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 记录一次重建耗时
+     */
+    public void recordRecompute(long nanos) {
+        recomputeNanos.accumulateAndGet(nanos, (avg, sample) -> avg == 0 ? sample : (avg * 7 + sample) / 8);
+    }
+    
+    /**
+     * 根据剩余存活时间判断是否需要提前刷新
+     */
+    public boolean shouldRefresh(Duration ttlRemaining) {
+        if (!enabled || ttlRemaining == null || ttlRemaining.isNegative() || ttlRemaining.isZero()) {
+            return false;
+        }
+        
+        long delta = recomputeNanos.get();
+        if (delta == 0) {
+            return false;
+        }
+        
+        double random = ThreadLocalRandom.current().nextDouble();
+        double threshold = delta * beta * -Math.log(random);
+        boolean refresh = threshold >= ttlRemaining.toNanos();
+        if (refresh) {
+            refreshCount.increment();
+        }
+        return refresh;
+    }
+    
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+}
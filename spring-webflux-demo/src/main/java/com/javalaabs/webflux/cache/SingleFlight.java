@@ -0,0 +1,60 @@
+package com.javalaabs.webflux.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并（Single-Flight）
+ * 同一个键的并发加载共享同一个 Mono，只有第一个调用者真正执行加载，
+ * 其余调用者等待并复用结果；加载结束后立即从在途表中移除，不缓存结果
+ */
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executionCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    
+    /**
+     * 执行加载，若已有相同键的加载在途则直接复用
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                coalescedCount.increment();
+                return existing;
+            }
+            
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            Mono<V> candidate = Mono.defer(loader)
+                                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                                    .cache();
+            self.set(candidate);
+            
+            Mono<V> raced = inFlight.putIfAbsent(key, candidate);
+            if (raced != null) {
+                coalescedCount.increment();
+                return raced;
+            }
+            
+            executionCount.increment();
+            return candidate;
+        });
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    public long getExecutionCount() {
+        return executionCount.sum();
+    }
+    
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+}
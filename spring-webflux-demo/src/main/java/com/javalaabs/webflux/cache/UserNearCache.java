@@ -0,0 +1,153 @@
+package com.javalaabs.webflux.cache;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.dto.UserVersion;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 用户近端缓存
+ * 作为 Redis 之前的一级缓存，热点用户直接从内存返回；
+ * 通过 Redis 发布/订阅在节点之间广播失效消息，保证各节点的近端缓存及时清除
+ */
+@Component
+public class UserNearCache {
+    
+    public static final String CACHE_NAME = "user";
+    public static final String VERSION_CACHE_NAME = "user-version";
+    
+    private final NearCache<String, UserDTO> cache;
+    private final NearCache<String, UserVersion> versions;
+    private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final String invalidationChannel;
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    private volatile Disposable invalidationSubscription;
+    
+    public UserNearCache(PerformanceMonitor performanceMonitor,
+                         @Autowired(required = false) ReactiveRedisTemplate<String, Object> redisTemplate,
+                         @Value("${webflux.cache.user.near-max-size:10000}") int maxSize,
+                         @Value("${webflux.cache.user.near-ttl:30s}") Duration ttl,
+                         @Value("${webflux.cache.user.invalidation-channel:user-cache-invalidation}") String invalidationChannel,
+                         @Value("${webflux.cache.user.version-max-size:100000}") int versionMaxSize) {
+        this.cache = new NearCache<>(maxSize, ttl);
+        // 版本戳与用户数据使用相同的过期时间：加载与更新并发时可能写回旧版本戳，
+        // 过期时间决定了 304 可能基于旧数据的最长时间，不能比近端缓存本身更长
+        this.versions = new NearCache<>(versionMaxSize, ttl);
+        this.redisTemplate = redisTemplate;
+        this.invalidationChannel = invalidationChannel;
+        
+        performanceMonitor.registerCacheMetrics(CACHE_NAME, cache);
+        performanceMonitor.registerCacheMetrics(VERSION_CACHE_NAME, versions);
+    }
+    
+    /**
+     * 读取近端缓存
+     */
+    public UserDTO get(String id) {
+        return cache.get(id);
+    }
+    
+    /**
+     * 读取近端缓存（不计入命中统计）
+     */
+    public UserDTO peek(String id) {
+        return cache.peek(id);
+    }
+    
+    /**
+     * 读取用户版本戳（用于条件请求）；版本戳比用户数据小得多，可以保留更多条目
+     */
+    public UserVersion getVersion(String id) {
+        return versions.get(id);
+    }
+    
+    /**
+     * 写入近端缓存，同时记录版本戳
+     */
+    public void put(UserDTO user) {
+        if (user != null && user.getId() != null) {
+            cache.put(user.getId(), user);
+            UserVersion version = UserVersion.of(user);
+            if (version != null) {
+                versions.put(user.getId(), version);
+            }
+        }
+    }
+    
+    /**
+     * 清除本地缓存并通知其他节点
+     */
+    public Mono<Void> evict(String id) {
+        return Mono.defer(() -> {
+            cache.invalidate(id);
+            versions.invalidate(id);
+            
+            if (redisTemplate == null) {
+                return Mono.empty();
+            }
+            
+            return redisTemplate.convertAndSend(invalidationChannel, Map.of("node", nodeId, "id", id))
+                               .onErrorResume(error -> {
+                                   System.err.println("广播缓存失效消息失败: " + error.getMessage());
+                                   return Mono.empty();
+                               })
+                               .then();
+        });
+    }
+    
+    /**
+     * 应用就绪后订阅失效频道（仅在 Redis 可用时）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeInvalidations() {
+        if (redisTemplate == null) {
+            return;
+        }
+        
+        invalidationSubscription = redisTemplate.listenToChannel(invalidationChannel)
+            .map(ReactiveSubscription.Message::getMessage)
+            .doOnNext(this::handleInvalidation)
+            .doOnError(error -> System.err.println("缓存失效订阅中断: " + error.getMessage()))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                            .maxBackoff(Duration.ofSeconds(30)))
+            .subscribe();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        Disposable subscription = invalidationSubscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+    
+    private void handleInvalidation(Object message) {
+        if (!(message instanceof Map<?, ?> payload)) {
+            return;
+        }
+        // 本节点发出的消息在 evict 时已经处理过
+        if (nodeId.equals(payload.get("node"))) {
+            return;
+        }
+        Object id = payload.get("id");
+        if (id != null) {
+            cache.invalidate(id.toString());
+            versions.invalidate(id.toString());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.javalaabs.webflux.config;
 
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
@@ -12,6 +14,8 @@ import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
 import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
 
+import java.time.Duration;
+
 /**
  * R2DBC 数据库配置
  * 配置响应式数据库连接和初始化
@@ -28,17 +32,32 @@ public class R2dbcConfig extends AbstractR2dbcConfiguration {
 
     @Value("${spring.r2dbc.password}")
     private String password;
+
+    @Value("${spring.r2dbc.pool.initial-size:2}")
+    private int poolInitialSize;
+
+    @Value("${spring.r2dbc.pool.max-size:10}")
+    private int poolMaxSize;
+
+    @Value("${spring.r2dbc.pool.max-idle-time:30m}")
+    private Duration poolMaxIdleTime;
     
     /**
-     * 配置数据库连接工厂
+     * 配置数据库连接工厂（带连接池，池大小同时决定批量操作的并发上限）
      */
     @Override
-    @Bean
-    public ConnectionFactory connectionFactory() {
-        return ConnectionFactoryBuilder.withUrl(url)
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory() {
+        ConnectionFactory connectionFactory = ConnectionFactoryBuilder.withUrl(url)
                 .username(username)
                 .password(password)
                 .build();
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .maxIdleTime(poolMaxIdleTime)
+                .build());
     }
 
 }
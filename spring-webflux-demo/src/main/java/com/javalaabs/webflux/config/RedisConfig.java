@@ -1,6 +1,9 @@
 package com.javalaabs.webflux.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javalaabs.webflux.streaming.EventTransport;
+import com.javalaabs.webflux.streaming.RedisStreamEventTransport;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +14,8 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
  * Redis 配置类
  * 配置响应式 Redis 模板和序列化器
@@ -54,4 +59,17 @@ public class RedisConfig {
         
         return template;
     }
+    
+    /**
+     * 跨节点事件传输（Redis Streams），供事件总线在节点之间广播实时事件
+     */
+    @Bean
+    public EventTransport redisStreamEventTransport(
+            ReactiveRedisConnectionFactory connectionFactory,
+            ObjectMapper objectMapper,
+            @Value("${webflux.event-bus.redis.key-prefix:webflux:events:}") String keyPrefix,
+            @Value("${webflux.event-bus.redis.max-length:10000}") long maxLength,
+            @Value("${webflux.event-bus.redis.poll-timeout:2s}") Duration pollTimeout) {
+        return new RedisStreamEventTransport(connectionFactory, objectMapper, keyPrefix, maxLength, pollTimeout);
+    }
 }
@@ -1,5 +1,6 @@
 package com.javalaabs.webflux.config;
 
+import com.javalaabs.webflux.handler.FileHandler;
 import com.javalaabs.webflux.handler.HealthHandler;
 import com.javalaabs.webflux.handler.UserHandler;
 import org.springframework.context.annotation.Bean;
@@ -27,20 +28,31 @@ public class RouterConfiguration {
             .nest(path("/api/users"),
                 RouterFunctions
                     .route(GET(""), userHandler::getAllUsers)
-                    .andRoute(GET("/{id}"), userHandler::getUser)
-                    .andRoute(POST(""), userHandler::createUser)
-                    .andRoute(PUT("/{id}"), userHandler::updateUser)
-                    .andRoute(DELETE("/{id}"), userHandler::deleteUser)
+                    // 固定路径必须排在 /{id} 之前，否则会被当作用户ID匹配
+                    .andRoute(GET("/export"), userHandler::exportUsers)
                     .andRoute(GET("/search").and(queryParam("q", t -> true)), userHandler::searchUsers)
                     .andRoute(GET("/statistics"), userHandler::getStatistics)
                     .andRoute(GET("/stream").and(accept(MediaType.TEXT_EVENT_STREAM)), userHandler::streamUserActivities)
                     .andRoute(GET("/stream-json").and(accept(MediaType.APPLICATION_NDJSON)), userHandler::streamJsonUsers)
                     .andRoute(GET("/sse"), userHandler::sseEndpoint)
+                    .andRoute(GET("/{id}"), userHandler::getUser)
+                    .andRoute(POST(""), userHandler::createUser)
+                    .andRoute(PUT("/{id}"), userHandler::updateUser)
+                    .andRoute(DELETE("/{id}"), userHandler::deleteUser)
                     .andRoute(POST("/batch"), userHandler::batchOperation)
                     .andRoute(POST("/{userId}/upload"), userHandler::uploadFile)
             );
     }
     
+    /**
+     * 文件下载路由（头像等按内容寻址的文件）
+     */
+    @Bean
+    public RouterFunction<ServerResponse> fileRoutes(FileHandler fileHandler) {
+        return RouterFunctions
+            .route(GET("/api/files/{fileName}").or(HEAD("/api/files/{fileName}")), fileHandler::getFile);
+    }
+    
     /**
      * 健康检查路由
      */
@@ -57,6 +69,16 @@ public class RouterConfiguration {
             );
     }
     
+    /**
+     * 自定义指标路由（不放在 /actuator 下，避免被 Actuator 的 /actuator/metrics/{name} 抢先匹配）
+     */
+    @Bean
+    public RouterFunction<ServerResponse> metricsRoutes(HealthHandler healthHandler) {
+        return RouterFunctions
+            .route(GET("/metrics/latency"), healthHandler::latency)
+            .andRoute(GET("/metrics/event-loop"), healthHandler::eventLoop);
+    }
+    
     /**
      * 静态资源路由（如果需要）
      */
@@ -181,13 +203,19 @@ public class RouterConfiguration {
                     public final String put = "PUT /api/users/{id} - 更新用户";
                     public final String delete = "DELETE /api/users/{id} - 删除用户";
                 };
+                public final Object files = new Object() {
+                    public final String get = "GET /api/files/{fileName} - 下载文件（支持 ETag 和 Range）";
+                };
                 public final Object streams = new Object() {
                     public final String activities = "GET /api/users/stream - 用户活动流";
                     public final String updates = "GET /api/users/sse - 用户更新流";
+                    public final String export = "GET /api/users/export?format=ndjson|csv - 导出全部用户";
                 };
                 public final Object health = new Object() {
                     public final String basic = "GET /actuator/health - 健康检查";
                     public final String detailed = "GET /actuator/health/detailed - 详细检查";
+                    public final String latency = "GET /metrics/latency - 按路由的延迟分位数";
+                    public final String eventLoop = "GET /metrics/event-loop - 事件循环阻塞检测";
                 };
             };
         };
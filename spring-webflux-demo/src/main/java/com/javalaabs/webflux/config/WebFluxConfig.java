@@ -57,8 +57,8 @@ public class WebFluxConfig implements WebFluxConfigurer {
                          .option(ChannelOption.SO_BACKLOG, 1024)
                          .childOption(ChannelOption.TCP_NODELAY, true)
                          .idleTimeout(Duration.ofMinutes(5))
-                         .accessLog(true)
-                         .compress(true)
+                         // 文件下载不压缩：图片本身已压缩，且压缩会让 Netty 放弃 sendfile 零拷贝
+                         .compress((request, response) -> !request.uri().startsWith("/api/files/"))
             );
         };
     }
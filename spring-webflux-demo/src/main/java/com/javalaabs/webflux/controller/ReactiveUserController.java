@@ -1,14 +1,23 @@
 package com.javalaabs.webflux.controller;
 
+import com.javalaabs.webflux.domain.dto.BulkCreateResult;
 import com.javalaabs.webflux.domain.dto.CreateUserRequest;
+import com.javalaabs.webflux.domain.dto.CursorPage;
 import com.javalaabs.webflux.domain.dto.UpdateUserRequest;
-import com.javalaabs.webflux.domain.dto.UserActivityDTO;
 import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.dto.UserVersion;
 import com.javalaabs.webflux.domain.event.UserUpdateEvent;
 import com.javalaabs.webflux.exception.UserNotFoundException;
 import com.javalaabs.webflux.exception.ValidationException;
+import com.javalaabs.webflux.handler.ConditionalRequests;
 import com.javalaabs.webflux.service.ReactiveUserService;
+import com.javalaabs.webflux.streaming.HeartbeatTicker;
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import com.javalaabs.webflux.streaming.SequencedEvents;
+import com.javalaabs.webflux.streaming.SlowConsumerPolicy;
+import com.javalaabs.webflux.streaming.SseFrameBatcher;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -34,18 +43,38 @@ import java.util.Map;
 public class ReactiveUserController {
     
     private final ReactiveUserService userService;
+    private final HeartbeatTicker heartbeatTicker;
+    private final SseFrameBatcher frameBatcher;
     
-    public ReactiveUserController(ReactiveUserService userService) {
+    public ReactiveUserController(ReactiveUserService userService,
+                                  HeartbeatTicker heartbeatTicker,
+                                  SseFrameBatcher frameBatcher) {
         this.userService = userService;
+        this.heartbeatTicker = heartbeatTicker;
+        this.frameBatcher = frameBatcher;
     }
     
     /**
      * 获取单个用户
      */
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<UserDTO>> getUser(@PathVariable String id) {
+    public Mono<ResponseEntity<UserDTO>> getUser(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        // 版本戳命中且客户端缓存仍有效时直接返回 304，不加载用户数据
+        UserVersion cached = userService.findVersion(id);
+        if (cached != null && ConditionalRequests.notModified(headers, cached.etag(), cached.lastModified())) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                           .eTag(cached.etag())
+                                           .lastModified(cached.lastModified())
+                                           .build());
+        }
+        
         return userService.findById(id)
-                         .map(ResponseEntity::ok)
+                         .map(user -> {
+                             UserVersion version = UserVersion.of(user);
+                             return version != null ?
+                                 conditional(headers, user, version.etag(), version.lastModified()) :
+                                 ResponseEntity.ok(user);
+                         })
                          .onErrorResume(UserNotFoundException.class, 
                              error -> Mono.just(ResponseEntity.notFound().build()))
                          .doOnNext(response -> System.out.println("返回用户: " + id))
@@ -56,9 +85,10 @@ public class ReactiveUserController {
      * 获取用户列表（支持分页和搜索）
      */
     @GetMapping
-    public Flux<UserDTO> getUsers(@RequestParam(defaultValue = "0") int page,
-                                 @RequestParam(defaultValue = "10") int size,
-                                 @RequestParam(required = false) String search) {
+    public Mono<ResponseEntity<List<UserDTO>>> getUsers(@RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "10") int size,
+                                                        @RequestParam(required = false) String search,
+                                                        @RequestHeader HttpHeaders headers) {
         
         // 参数验证
         if (page < 0) page = 0;
@@ -69,7 +99,29 @@ public class ReactiveUserController {
                          .doOnNext(user -> System.out.println("返回用户: " + user.getName()))
                          .doOnComplete(() -> System.out.println("用户列表返回完成"))
                          .onErrorContinue((error, item) -> 
-                             System.err.println("处理用户数据出错: " + error.getMessage()));
+                             System.err.println("处理用户数据出错: " + error.getMessage()))
+                         .collectList()
+                         .map(users -> conditional(headers, users, UserVersion.listEtag(users),
+                                                   UserVersion.lastModified(users)));
+    }
+    
+    /**
+     * 游标分页获取用户列表（cursor 为空时返回第一页）
+     */
+    @GetMapping(params = "cursor")
+    public Mono<ResponseEntity<CursorPage<UserDTO>>> getUsersByCursor(@RequestParam String cursor,
+                                                                     @RequestParam(defaultValue = "10") int size,
+                                                                     @RequestParam(required = false) String search,
+                                                                     @RequestParam(required = false) String accountType,
+                                                                     @RequestParam(defaultValue = "false") boolean active,
+                                                                     @RequestHeader HttpHeaders headers) {
+        // 参数验证
+        if (size <= 0 || size > 100) size = 10;
+        
+        return userService.findUsers(cursor, size, search, accountType, active)
+                         .doOnNext(page -> System.out.println("返回用户分页: " + page.getSize() + " 条"))
+                         .map(page -> conditional(headers, page, UserVersion.pageEtag(page),
+                                                  UserVersion.lastModified(page.getItems())));
     }
     
     /**
@@ -90,16 +142,11 @@ public class ReactiveUserController {
     }
     
     /**
-     * 批量创建用户
+     * 批量创建用户（逐条返回创建结果）
      */
     @PostMapping("/batch")
-    public Flux<UserDTO> createUsers(@RequestBody Flux<CreateUserRequest> userRequestFlux) {
-        return userRequestFlux
-            .buffer(10) // 每10个一批处理
-            .flatMap(batch -> userService.createUsers(batch))
-            .onErrorContinue((error, user) -> 
-                System.err.println("批量创建用户失败: " + error.getMessage()))
-            .doOnNext(user -> System.out.println("批量创建用户: " + user.getName()))
+    public Flux<BulkCreateResult> createUsers(@RequestBody Flux<CreateUserRequest> userRequestFlux) {
+        return userService.createUsers(userRequestFlux)
             .doOnComplete(() -> System.out.println("批量创建完成"));
     }
     
@@ -130,15 +177,17 @@ public class ReactiveUserController {
     }
     
     /**
-     * 服务器推送事件 (SSE) - 用户活动流
+     * 服务器推送事件 (SSE) - 用户活动流，重连时按 Last-Event-ID 补发错过的活动；batch=100ms 时按窗口合并帧
      */
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<UserActivityDTO>> streamUserActivities() {
-        return userService.getUserActivityStream()
-                         .map(activity -> ServerSentEvent.builder(activity)
-                                                        .id(String.valueOf(activity.getId()))
-                                                        .event("user-activity")
-                                                        .build())
+    public Flux<ServerSentEvent<Object>> streamUserActivities(
+            @RequestHeader(value = SequencedEvents.LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+            @RequestParam(required = false) String policy,
+            @RequestParam(required = false) String batch) {
+        return heartbeatTicker.withHeartbeat(
+                             frameBatcher.frames(userService.getUserActivityStream(lastEventId, SlowConsumerPolicy.parse(policy)),
+                                                 "user-activity", frameBatcher.parseWindow(batch)),
+                             SequencedEvents::heartbeat)
                          .doOnNext(event -> System.out.println("推送用户活动: " + event.data()))
                          .doOnCancel(() -> System.out.println("客户端取消了用户活动流"))
                          .onErrorContinue((error, event) -> 
@@ -149,14 +198,10 @@ public class ReactiveUserController {
      * 流式JSON响应 - 用户更新事件
      */
     @GetMapping(value = "/live-updates", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<UserUpdateEvent> liveUserUpdates(@RequestParam(required = false) String userId) {
-        Flux<UserUpdateEvent> stream = userService.getUserUpdateStream();
-        
-        if (userId != null && !userId.trim().isEmpty()) {
-            stream = stream.filter(event -> userId.equals(event.getUserId()));
-        }
-        
-        return stream
+    public Flux<UserUpdateEvent> liveUserUpdates(@RequestParam(required = false) String userId,
+                                                 @RequestParam(required = false) String policy) {
+        return userService.getUserUpdateStream(userId, null, SlowConsumerPolicy.parse(policy))
+            .map(Sequenced::value)
             .delayElements(Duration.ofMillis(100)) // 限制推送速率
             .doOnSubscribe(subscription -> System.out.println("客户端订阅用户更新流"))
             .doOnCancel(() -> System.out.println("客户端取消用户更新流"))
@@ -223,17 +268,16 @@ public class ReactiveUserController {
     }
     
     /**
-     * 心跳检测（用于保持连接）
+     * 心跳检测（用于保持连接），所有连接共用一个定时器
      */
     @GetMapping(value = "/heartbeat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> heartbeat() {
-        return Flux.interval(Duration.ofSeconds(30))
-                  .map(tick -> ServerSentEvent.builder("ping")
-                                             .id(String.valueOf(tick))
-                                             .event("heartbeat")
-                                             .build())
-                  .doOnSubscribe(subscription -> System.out.println("客户端订阅心跳"))
-                  .doOnCancel(() -> System.out.println("客户端取消心跳"));
+        return heartbeatTicker.heartbeats(tick -> ServerSentEvent.builder("ping")
+                                                                 .id(String.valueOf(tick))
+                                                                 .event("heartbeat")
+                                                                 .build())
+                              .doOnSubscribe(subscription -> System.out.println("客户端订阅心跳"))
+                              .doOnCancel(() -> System.out.println("客户端取消心跳"));
     }
     
     /**
@@ -263,14 +307,25 @@ public class ReactiveUserController {
     }
     
     /**
-     * 批量获取用户（演示并行处理）
+     * 带 ETag / Last-Modified 的响应，客户端缓存仍有效时返回 304
+     */
+    private static <T> ResponseEntity<T> conditional(HttpHeaders headers, T body, String etag, Instant lastModified) {
+        boolean notModified = ConditionalRequests.notModified(headers, etag, lastModified);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                                                           .eTag(etag);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return notModified ? builder.build() : builder.body(body);
+    }
+    
+    /**
+     * 批量获取用户（请求级批量加载，每批一次 MGET + 一次 IN 查询）
      */
     @PostMapping("/batch-get")
     public Flux<UserDTO> batchGetUsers(@RequestBody Flux<String> userIdFlux) {
-        return userIdFlux
-            .flatMap(userId -> userService.findById(userId), 5) // 并发度为5
-            .onErrorContinue(UserNotFoundException.class, (error, userId) -> 
-                System.err.println("用户不存在: " + userId))
+        return userService.newBatchLoader()
+            .loadMany(userIdFlux)
             .doOnNext(user -> System.out.println("批量获取用户: " + user.getName()));
     }
 }
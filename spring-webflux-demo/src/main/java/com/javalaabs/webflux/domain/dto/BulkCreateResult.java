@@ -0,0 +1,73 @@
+package com.javalaabs.webflux.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 批量创建用户的单条结果
+ * index 为该条目在请求中的位置（从0开始），便于调用方逐条核对
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkCreateResult {
+    
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        FAILED
+    }
+    
+    private final long index;
+    private final String email;
+    private final Status status;
+    private final UserDTO user;
+    private final String error;
+    
+    private BulkCreateResult(long index, String email, Status status, UserDTO user, String error) {
+        this.index = index;
+        this.email = email;
+        this.status = status;
+        this.user = user;
+        this.error = error;
+    }
+    
+    public static BulkCreateResult created(long index, UserDTO user) {
+        return new BulkCreateResult(index, user.getEmail(), Status.CREATED, user, null);
+    }
+    
+    public static BulkCreateResult duplicate(long index, String email) {
+        return new BulkCreateResult(index, email, Status.DUPLICATE, null, "邮箱已存在");
+    }
+    
+    public static BulkCreateResult failed(long index, String email, String error) {
+        return new BulkCreateResult(index, email, Status.FAILED, null, error);
+    }
+    
+    public long getIndex() {
+        return index;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public UserDTO getUser() {
+        return user;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkCreateResult{" +
+               "index=" + index +
+               ", email='" + email + '\'' +
+               ", status=" + status +
+               (error != null ? ", error='" + error + '\'' : "") +
+               '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.javalaabs.webflux.domain.dto;
+
+import com.javalaabs.webflux.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 用户列表游标
+ * 由最后一条记录的 (create_time, id) 组成，对客户端以不透明的 Base64URL 字符串暴露，
+ * 下一页查询通过索引定位到游标位置，与翻页深度无关
+ */
+public final class UserCursor {
+    
+    private final Instant createTime;
+    private final String id;
+    
+    public UserCursor(Instant createTime, String id) {
+        this.createTime = Objects.requireNonNull(createTime, "游标时间不能为空");
+        this.id = Objects.requireNonNull(id, "游标ID不能为空");
+    }
+    
+    /**
+     * 以某条记录作为下一页的起点
+     */
+    public static UserCursor after(UserDTO user) {
+        return new UserCursor(user.getCreateTime(), user.getId());
+    }
+    
+    /**
+     * 解析游标，空字符串表示从第一页开始（返回 null）
+     */
+    public static UserCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || parts[2].isEmpty()) {
+                throw new ValidationException("无效的分页游标");
+            }
+            Instant createTime = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new UserCursor(createTime, parts[2]);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new ValidationException("无效的分页游标", e);
+        }
+    }
+    
+    /**
+     * 编码为不透明字符串
+     */
+    public String encode() {
+        String raw = createTime.getEpochSecond() + ":" + createTime.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public Instant getCreateTime() {
+        return createTime;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "UserCursor{" +
+               "createTime=" + createTime +
+               ", id='" + id + '\'' +
+               '}';
+    }
+}
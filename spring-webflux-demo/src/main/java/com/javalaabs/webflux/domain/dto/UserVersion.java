@@ -0,0 +1,74 @@
+package com.javalaabs.webflux.domain.dto;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 用户版本戳
+ * 由用户ID和 updateTime 组成，用于生成弱 ETag 和 Last-Modified；
+ * 版本戳很小，可以单独缓存，条件请求命中时无需加载或反序列化用户数据
+ */
+public record UserVersion(String id, Instant updateTime) {
+    
+    /**
+     * 从用户数据提取版本戳，缺少 updateTime 时返回 null（不参与条件请求）
+     */
+    public static UserVersion of(UserDTO user) {
+        if (user == null || user.getId() == null || user.getUpdateTime() == null) {
+            return null;
+        }
+        return new UserVersion(user.getId(), user.getUpdateTime());
+    }
+    
+    /**
+     * 弱 ETag：W/"id-更新时间毫秒数(36进制)"
+     */
+    public String etag() {
+        return "W/\"" + id + "-" + Long.toString(updateTime.toEpochMilli(), 36) + "\"";
+    }
+    
+    /**
+     * Last-Modified 精度只到秒
+     */
+    public Instant lastModified() {
+        return updateTime.truncatedTo(ChronoUnit.SECONDS);
+    }
+    
+    /**
+     * 用户列表的弱 ETag，由列表中每个用户的ID和更新时间按顺序组合而成
+     */
+    public static String listEtag(List<UserDTO> users) {
+        return listEtag(users, "");
+    }
+    
+    /**
+     * 游标分页的弱 ETag，额外包含是否还有下一页
+     */
+    public static String pageEtag(CursorPage<UserDTO> page) {
+        return listEtag(page.getItems(), page.isHasMore() ? "-m" : "");
+    }
+    
+    /**
+     * 列表中最晚的更新时间，没有可用时间时返回 null
+     */
+    public static Instant lastModified(List<UserDTO> users) {
+        Instant latest = null;
+        for (UserDTO user : users) {
+            Instant updateTime = user.getUpdateTime();
+            if (updateTime != null && (latest == null || updateTime.isAfter(latest))) {
+                latest = updateTime;
+            }
+        }
+        return latest != null ? latest.truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+    
+    private static String listEtag(List<UserDTO> users, String suffix) {
+        long hash = users.size();
+        for (UserDTO user : users) {
+            hash = hash * 31 + (user.getId() != null ? user.getId().hashCode() : 0);
+            hash = hash * 31 + (user.getUpdateTime() != null ? user.getUpdateTime().toEpochMilli() : 0);
+        }
+        return "W/\"list-" + Long.toUnsignedString(hash, 36) + suffix + "\"";
+    }
+}
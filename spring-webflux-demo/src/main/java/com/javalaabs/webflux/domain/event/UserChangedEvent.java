@@ -0,0 +1,80 @@
+package com.javalaabs.webflux.domain.event;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.Instant;
+
+/**
+ * 用户变更事件
+ * 在用户创建、更新、删除的事务提交后发布，携带变更前后的用户快照，
+ * 供进程内的派生数据（搜索索引、统计计数等）增量维护
+ */
+public class UserChangedEvent extends ApplicationEvent {
+    
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+    
+    private final ChangeType changeType;
+    private final UserDTO before;
+    private final UserDTO after;
+    private final Instant timestamp;
+    
+    private UserChangedEvent(ChangeType changeType, UserDTO before, UserDTO after) {
+        super(UserChangedEvent.class);
+        this.changeType = changeType;
+        this.before = before;
+        this.after = after;
+        this.timestamp = Instant.now();
+    }
+    
+    public static UserChangedEvent created(UserDTO user) {
+        return new UserChangedEvent(ChangeType.CREATED, null, user);
+    }
+    
+    public static UserChangedEvent updated(UserDTO before, UserDTO after) {
+        return new UserChangedEvent(ChangeType.UPDATED, before, after);
+    }
+    
+    public static UserChangedEvent deleted(UserDTO user) {
+        return new UserChangedEvent(ChangeType.DELETED, user, null);
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    /**
+     * 变更前快照（创建事件为 null）
+     */
+    public UserDTO getBefore() {
+        return before;
+    }
+    
+    /**
+     * 变更后快照（删除事件为 null）
+     */
+    public UserDTO getAfter() {
+        return after;
+    }
+    
+    public String getUserId() {
+        return after != null ? after.getId() : before.getId();
+    }
+    
+    public Instant getEventTimestamp() {
+        return timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return "UserChangedEvent{" +
+               "changeType=" + changeType +
+               ", userId='" + getUserId() + '\'' +
+               ", timestamp=" + timestamp +
+               '}';
+    }
+}
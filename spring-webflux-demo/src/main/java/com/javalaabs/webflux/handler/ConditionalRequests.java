@@ -0,0 +1,45 @@
+package com.javalaabs.webflux.handler;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+
+/**
+ * 条件请求判断（If-None-Match / If-Modified-Since）
+ * 函数式处理器和注解控制器共用，只读取请求头，不修改交换上下文
+ */
+public final class ConditionalRequests {
+    
+    private ConditionalRequests() {
+    }
+    
+    /**
+     * 判断客户端缓存是否仍然有效：If-None-Match 存在时只比较 ETag（弱比较），否则比较 If-Modified-Since
+     */
+    public static boolean notModified(HttpHeaders requestHeaders, String etag, Instant lastModified) {
+        String ifNoneMatch = requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etag != null && matches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return lastModified != null && ifModifiedSince >= 0 && lastModified.toEpochMilli() <= ifModifiedSince;
+    }
+    
+    /**
+     * 弱比较：忽略 W/ 前缀，支持逗号分隔的多个值和 *
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = stripWeak(candidate.trim());
+            if (value.equals("*") || value.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
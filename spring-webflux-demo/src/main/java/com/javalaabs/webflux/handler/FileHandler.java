@@ -0,0 +1,66 @@
+package com.javalaabs.webflux.handler;
+
+import com.javalaabs.webflux.storage.AvatarStorage;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件下载处理器
+ * 文件按内容寻址、写入后不再变化，因此 ETag 直接取内容哈希（强校验），并允许客户端和 CDN 永久缓存；
+ * 文件体以 Resource 写出，由 Netty 的 FileRegion（sendfile）零拷贝发送，Range 请求同样走零拷贝
+ */
+@Component
+public class FileHandler {
+    
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    
+    private final AvatarStorage avatarStorage;
+    
+    public FileHandler(AvatarStorage avatarStorage) {
+        this.avatarStorage = avatarStorage;
+    }
+    
+    /**
+     * 下载文件，支持 If-None-Match（304）和 Range（206）
+     */
+    public Mono<ServerResponse> getFile(ServerRequest request) {
+        String fileName = request.pathVariable("fileName");
+        Path path = avatarStorage.resolve(fileName);
+        if (path == null) {
+            return ServerResponse.notFound().build();
+        }
+        
+        String etag = "\"" + fileName.substring(0, fileName.indexOf('.')) + "\"";
+        
+        // 内容不可变，ETag 匹配时无需访问磁盘
+        if (ConditionalRequests.notModified(request.headers().asHttpHeaders(), etag, null)) {
+            return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(etag)
+                                .cacheControl(IMMUTABLE)
+                                .build();
+        }
+        
+        FileSystemResource resource = new FileSystemResource(path);
+        if (!resource.isReadable()) {
+            return ServerResponse.notFound().build();
+        }
+        
+        MediaType mediaType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return ServerResponse.ok()
+                            .eTag(etag)
+                            .cacheControl(IMMUTABLE)
+                            .contentType(mediaType)
+                            .body(BodyInserters.fromResource(resource));
+    }
+}
@@ -1,5 +1,7 @@
 package com.javalaabs.webflux.handler;
 
+import com.javalaabs.webflux.monitoring.EventLoopWatchdog;
+import com.javalaabs.webflux.monitoring.LatencyHistograms;
 import com.javalaabs.webflux.service.ReactiveUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
@@ -25,10 +27,16 @@ public class HealthHandler {
     
     private final ReactiveUserService userService;
     private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final LatencyHistograms latencyHistograms;
+    private final EventLoopWatchdog eventLoopWatchdog;
     
     public HealthHandler(ReactiveUserService userService,
+                        LatencyHistograms latencyHistograms,
+                        EventLoopWatchdog eventLoopWatchdog,
                         @Autowired(required = false) ReactiveRedisTemplate<String, Object> redisTemplate) {
         this.userService = userService;
+        this.latencyHistograms = latencyHistograms;
+        this.eventLoopWatchdog = eventLoopWatchdog;
         this.redisTemplate = redisTemplate;
     }
     
@@ -115,6 +123,24 @@ public class HealthHandler {
             .timeout(Duration.ofSeconds(5));
     }
     
+    /**
+     * 事件循环阻塞检测：各线程池的阻塞次数、当前最大调度延迟，以及最近阻塞线程的调用栈
+     */
+    public Mono<ServerResponse> eventLoop(ServerRequest request) {
+        return ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(eventLoopWatchdog.snapshot());
+    }
+    
+    /**
+     * 延迟分位数：按路由和状态码类别的 1m/5m/15m 窗口 p50/p90/p99/p99.9/max，可用 route 参数只看单个路由
+     */
+    public Mono<ServerResponse> latency(ServerRequest request) {
+        return ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(latencyHistograms.snapshot(request.queryParam("route").orElse(null)));
+    }
+    
     /**
      * 就绪检查
      */
@@ -241,12 +267,14 @@ public class HealthHandler {
                          .map(stats -> Map.of(
                              "userStatistics", stats,
                              "uptime", getUptime(),
+                             "eventLoop", eventLoopWatchdog.snapshot(),
                              "timestamp", Instant.now()
                          ))
-                         .onErrorReturn(Map.of(
+                         .onErrorResume(error -> Mono.fromSupplier(() -> Map.of(
                              "error", "Unable to get application metrics",
+                             "eventLoop", eventLoopWatchdog.snapshot(),
                              "timestamp", Instant.now()
-                         ));
+                         )));
     }
     
     private long getUptime() {
@@ -1,14 +1,27 @@
 package com.javalaabs.webflux.handler;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.javalaabs.webflux.domain.dto.CreateUserRequest;
 import com.javalaabs.webflux.domain.dto.UpdateUserRequest;
 import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.dto.UserVersion;
 import com.javalaabs.webflux.domain.event.UserUpdateEvent;
 import com.javalaabs.webflux.exception.UserNotFoundException;
 import com.javalaabs.webflux.exception.ValidationException;
 import com.javalaabs.webflux.service.ReactiveUserService;
+import com.javalaabs.webflux.streaming.HeartbeatTicker;
+import com.javalaabs.webflux.streaming.SequencedEvents;
+import com.javalaabs.webflux.streaming.SlowConsumerPolicy;
+import com.javalaabs.webflux.streaming.SseFrameBatcher;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
@@ -21,7 +34,10 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -33,18 +49,55 @@ import java.util.stream.Collectors;
 @Component
 public class UserHandler {
     
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final String CSV_HEADER = "id,name,email,accountType,isActive,createTime,updateTime\n";
+    
     private final ReactiveUserService userService;
     private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final HeartbeatTicker heartbeatTicker;
+    private final SseFrameBatcher frameBatcher;
+    private final int batchConcurrency;
     
-    public UserHandler(ReactiveUserService userService, Validator validator) {
+    public UserHandler(ReactiveUserService userService,
+                       Validator validator,
+                       ObjectMapper objectMapper,
+                       HeartbeatTicker heartbeatTicker,
+                       SseFrameBatcher frameBatcher,
+                       ConnectionFactory connectionFactory,
+                       @Value("${webflux.batch-operation.concurrency:0}") int batchConcurrency) {
         this.userService = userService;
         this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.heartbeatTicker = heartbeatTicker;
+        this.frameBatcher = frameBatcher;
+        this.batchConcurrency = resolveBatchConcurrency(connectionFactory, batchConcurrency);
+    }
+    
+    /**
+     * 批量操作并发度：未显式配置时取连接池上限的一半，为其他请求保留连接；
+     * 显式配置也不会超过连接池上限，避免批量请求在连接池上排队
+     */
+    private static int resolveBatchConcurrency(ConnectionFactory connectionFactory, int configured) {
+        int poolMaxSize = connectionFactory instanceof ConnectionPool pool ?
+            pool.getMetrics().map(PoolMetrics::getMaxAllocatedSize).orElse(Integer.MAX_VALUE) :
+            Integer.MAX_VALUE;
+        
+        if (configured > 0) {
+            return Math.min(configured, poolMaxSize);
+        }
+        return poolMaxSize == Integer.MAX_VALUE ? 4 : Math.max(1, poolMaxSize / 2);
     }
     
     /**
      * 获取所有用户
+     * 携带 cursor 参数（首页传空值）时使用游标分页，否则保持原有的 page/size 偏移分页
      */
     public Mono<ServerResponse> getAllUsers(ServerRequest request) {
+        if (request.queryParam("cursor").isPresent()) {
+            return getUsersByCursor(request);
+        }
+        
         int page = request.queryParam("page")
                          .map(Integer::parseInt)
                          .orElse(0);
@@ -57,12 +110,33 @@ public class UserHandler {
         if (page < 0) page = 0;
         if (size <= 0 || size > 100) size = 10;
         
-        Flux<UserDTO> users = userService.findUsers(page, size, search);
+        return userService.findUsers(page, size, search)
+                         .collectList()
+                         .flatMap(users -> conditionalResponse(request, users, UserVersion.listEtag(users),
+                                                               UserVersion.lastModified(users)))
+                         .doOnNext(response -> System.out.println("函数式处理器返回用户列表"));
+    }
+    
+    /**
+     * 游标分页获取用户
+     */
+    private Mono<ServerResponse> getUsersByCursor(ServerRequest request) {
+        String cursor = request.queryParam("cursor").orElse("");
+        int size = request.queryParam("size")
+                         .map(Integer::parseInt)
+                         .orElse(10);
+        String search = request.queryParam("search").orElse(null);
+        String accountType = request.queryParam("accountType").orElse(null);
+        boolean activeOnly = request.queryParam("active")
+                                   .map(Boolean::parseBoolean)
+                                   .orElse(false);
+        
+        // 参数验证
+        if (size <= 0 || size > 100) size = 10;
         
-        return ServerResponse.ok()
-                           .contentType(MediaType.APPLICATION_JSON)
-                           .body(users, UserDTO.class)
-                           .doOnNext(response -> System.out.println("函数式处理器返回用户列表"));
+        return userService.findUsers(cursor, size, search, accountType, activeOnly)
+                         .flatMap(page -> conditionalResponse(request, page, UserVersion.pageEtag(page),
+                                                              UserVersion.lastModified(page.getItems())));
     }
     
     /**
@@ -71,10 +145,22 @@ public class UserHandler {
     public Mono<ServerResponse> getUser(ServerRequest request) {
         String id = request.pathVariable("id");
         
+        // 版本戳命中且客户端缓存仍有效时直接返回 304，不加载用户数据
+        UserVersion cached = userService.findVersion(id);
+        if (cached != null && ConditionalRequests.notModified(request.headers().asHttpHeaders(),
+                                                               cached.etag(), cached.lastModified())) {
+            return notModified(cached.etag(), cached.lastModified());
+        }
+        
         return userService.findById(id)
-                         .flatMap(user -> ServerResponse.ok()
-                                                      .contentType(MediaType.APPLICATION_JSON)
-                                                      .bodyValue(user))
+                         .flatMap(user -> {
+                             UserVersion version = UserVersion.of(user);
+                             return version != null ?
+                                 conditionalResponse(request, user, version.etag(), version.lastModified()) :
+                                 ServerResponse.ok()
+                                               .contentType(MediaType.APPLICATION_JSON)
+                                               .bodyValue(user);
+                         })
                          .switchIfEmpty(ServerResponse.notFound().build())
                          .onErrorResume(UserNotFoundException.class,
                              error -> ServerResponse.notFound().build())
@@ -137,14 +223,13 @@ public class UserHandler {
     }
     
     /**
-     * 流式响应 - 用户活动
+     * 流式响应 - 用户活动（支持 Last-Event-ID 断线续传，batch=100ms 时按窗口合并帧）
      */
     public Mono<ServerResponse> streamUserActivities(ServerRequest request) {
-        var activityStream = userService.getUserActivityStream()
-                                       .map(activity -> ServerSentEvent.builder(activity)
-                                                                      .id(String.valueOf(activity.getId()))
-                                                                      .event("user-activity")
-                                                                      .build());
+        var activityStream = heartbeatTicker.withHeartbeat(
+            frameBatcher.frames(userService.getUserActivityStream(lastEventId(request), slowConsumerPolicy(request)),
+                                "user-activity", batchWindow(request)),
+            SequencedEvents::heartbeat);
         
         return ServerResponse.ok()
                            .contentType(MediaType.TEXT_EVENT_STREAM)
@@ -177,59 +262,116 @@ public class UserHandler {
     }
     
     /**
-     * 服务器推送事件端点
+     * 服务器推送事件端点（支持 Last-Event-ID 断线续传，batch=100ms 时按窗口合并帧）
      */
     public Mono<ServerResponse> sseEndpoint(ServerRequest request) {
         String userId = request.queryParam("userId").orElse(null);
         
-        Flux<ServerSentEvent<Object>> eventStream = userService.getUserUpdateStream()
-            .filter(event -> userId == null || userId.equals(event.getUserId()))
-            .map(event -> ServerSentEvent.builder()
-                                        .id(String.valueOf(event.getId()))
-                                        .event("user-update")
-                                        .data(event)
-                                        .build())
-            .mergeWith(
-                // 添加心跳事件
-                Flux.interval(Duration.ofSeconds(30))
-                   .map(tick -> ServerSentEvent.builder()
-                                              .event("heartbeat")
-                                              .data("ping")
-                                              .build())
-            );
+        // 心跳来自共享定时器，连接最近发送过事件时不发送
+        Flux<ServerSentEvent<Object>> eventStream = heartbeatTicker.withHeartbeat(
+            frameBatcher.frames(userService.getUserUpdateStream(userId, lastEventId(request), slowConsumerPolicy(request)),
+                                "user-update", batchWindow(request)),
+            SequencedEvents::heartbeat);
         
         return ServerResponse.ok()
                            .contentType(MediaType.TEXT_EVENT_STREAM)
                            .body(eventStream, ServerSentEvent.class);
     }
     
+    /**
+     * 断线重连时浏览器通过 Last-Event-ID 请求头带回最后收到的事件 id，
+     * 无法设置请求头的客户端可以使用 lastEventId 查询参数
+     */
+    private String lastEventId(ServerRequest request) {
+        String header = request.headers().firstHeader(SequencedEvents.LAST_EVENT_ID_HEADER);
+        return header != null ? header : request.queryParam("lastEventId").orElse(null);
+    }
+    
+    /**
+     * 慢消费者策略：policy=drop-oldest|conflate|disconnect，未指定时使用默认策略
+     */
+    private SlowConsumerPolicy slowConsumerPolicy(ServerRequest request) {
+        return SlowConsumerPolicy.parse(request.queryParam("policy").orElse(null));
+    }
+    
+    /**
+     * SSE 帧合并窗口：batch=100ms，未指定时每个事件一帧
+     */
+    private Duration batchWindow(ServerRequest request) {
+        return frameBatcher.parseWindow(request.queryParam("batch").orElse(null));
+    }
+    
+    /**
+     * 带 ETag / Last-Modified 的响应，客户端缓存仍有效时返回 304
+     */
+    private Mono<ServerResponse> conditionalResponse(ServerRequest request, Object body, String etag,
+                                                     Instant lastModified) {
+        if (ConditionalRequests.notModified(request.headers().asHttpHeaders(), etag, lastModified)) {
+            return notModified(etag, lastModified);
+        }
+        ServerResponse.BodyBuilder builder = ServerResponse.ok().eTag(etag);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON)
+                      .bodyValue(body);
+    }
+    
+    private Mono<ServerResponse> notModified(String etag, Instant lastModified) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder.build();
+    }
+    
     /**
      * 批量操作处理
      */
     public Mono<ServerResponse> batchOperation(ServerRequest request) {
-        return request.bodyToFlux(BatchUserRequest.class)
-                     .collectList()
-                     .flatMap(requests -> {
-                         Flux<UserDTO> results = Flux.fromIterable(requests)
-                             .flatMap(req -> {
-                                 switch (req.getOperation()) {
-                                     case "CREATE":
-                                         return userService.createUser(req.getCreateRequest());
-                                     case "UPDATE":
-                                         return userService.updateUser(req.getUserId(), req.getUpdateRequest());
-                                     case "DELETE":
-                                         return userService.deleteById(req.getUserId()).then(Mono.empty());
-                                     default:
-                                         return Mono.error(new IllegalArgumentException("不支持的操作: " + req.getOperation()));
-                                 }
-                             })
-                             .onErrorContinue((error, item) -> 
-                                 System.err.println("批量操作失败: " + error.getMessage()));
-                         
-                         return ServerResponse.ok()
-                                            .contentType(MediaType.APPLICATION_JSON)
-                                            .body(results, UserDTO.class);
-                     });
+        // 边读边处理：flatMap 只向请求体请求 batchConcurrency 个条目，处理完一个才读取下一个
+        Flux<BatchOperationResult> results = request.bodyToFlux(BatchUserRequest.class)
+                                                    .index()
+                                                    .flatMap(item -> executeBatchItem(item.getT1(), item.getT2()),
+                                                             batchConcurrency);
+        
+        return ServerResponse.ok()
+                           .contentType(MediaType.APPLICATION_NDJSON)
+                           .body(results, BatchOperationResult.class);
+    }
+    
+    private Mono<BatchOperationResult> executeBatchItem(long index, BatchUserRequest req) {
+        String operation = req.getOperation();
+        
+        return Mono.defer(() -> {
+            if (operation == null) {
+                return Mono.error(new ValidationException("缺少操作类型"));
+            }
+            switch (operation) {
+                case "CREATE":
+                    if (req.getCreateRequest() == null) {
+                        return Mono.error(new ValidationException("缺少创建参数"));
+                    }
+                    validateCreateRequest(req.getCreateRequest());
+                    return userService.createUser(req.getCreateRequest())
+                                      .map(user -> BatchOperationResult.success(index, operation, user.getId(), user));
+                case "UPDATE":
+                    if (req.getUpdateRequest() == null) {
+                        return Mono.error(new ValidationException("缺少更新参数"));
+                    }
+                    validateUpdateRequest(req.getUpdateRequest());
+                    return userService.updateUser(req.getUserId(), req.getUpdateRequest())
+                                      .map(user -> BatchOperationResult.success(index, operation, user.getId(), user));
+                case "DELETE":
+                    return userService.deleteById(req.getUserId())
+                                      .thenReturn(BatchOperationResult.success(index, operation, req.getUserId(), null));
+                default:
+                    return Mono.error(new IllegalArgumentException("不支持的操作: " + operation));
+            }
+        }).onErrorResume(error -> {
+            System.err.println("批量操作失败 [" + index + "]: " + error.getMessage());
+            return Mono.just(BatchOperationResult.failure(index, operation, req.getUserId(), error.getMessage()));
+        });
     }
     
     /**
@@ -265,8 +407,7 @@ public class UserHandler {
                                 .bodyValue(Map.of("error", "搜索关键字不能为空"));
         }
         
-        Flux<UserDTO> searchResults = userService.findUsers(page, size, query)
-                                                .take(size);
+        Flux<UserDTO> searchResults = userService.searchUsers(query, page, size);
         
         return ServerResponse.ok()
                            .contentType(MediaType.APPLICATION_JSON)
@@ -277,14 +418,90 @@ public class UserHandler {
      * 流式JSON响应
      */
     public Mono<ServerResponse> streamJsonUsers(ServerRequest request) {
-        Flux<UserDTO> userStream = userService.findUsers(0, 1000, null)
-                                             .delayElements(Duration.ofMillis(50)); // 控制流速
+        Flux<UserDTO> userStream = userService.exportUserPages(null, null, false)
+                                             .flatMapIterable(page -> page, 1);
         
         return ServerResponse.ok()
                            .contentType(MediaType.APPLICATION_NDJSON)
                            .body(userStream, UserDTO.class);
     }
     
+    /**
+     * 导出全部用户（NDJSON 或 CSV）
+     * 支持 format=ndjson|csv 以及 search、accountType、active 过滤；
+     * 每页渲染为一个数据块写出，读取速度由客户端的接收速度决定
+     */
+    public Mono<ServerResponse> exportUsers(ServerRequest request) {
+        String format = request.queryParam("format").orElse("ndjson").toLowerCase();
+        String search = request.queryParam("search").orElse(null);
+        String accountType = request.queryParam("accountType").orElse(null);
+        boolean activeOnly = request.queryParam("active")
+                                   .map(Boolean::parseBoolean)
+                                   .orElse(false);
+        
+        Flux<List<UserDTO>> pages = userService.exportUserPages(search, accountType, activeOnly);
+        
+        switch (format) {
+            case "csv":
+                return ServerResponse.ok()
+                                   .contentType(TEXT_CSV)
+                                   .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"")
+                                   .body(Flux.just(CSV_HEADER).concatWith(pages.map(this::toCsv)), String.class);
+            case "ndjson":
+                return ServerResponse.ok()
+                                   .contentType(MediaType.APPLICATION_NDJSON)
+                                   .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+                                   .body(pages.map(this::toNdjson), String.class);
+            default:
+                return ServerResponse.badRequest()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .bodyValue(Map.of("error", "不支持的导出格式: " + format));
+        }
+    }
+    
+    private String toNdjson(List<UserDTO> page) {
+        StringBuilder chunk = new StringBuilder(page.size() * 256);
+        for (UserDTO user : page) {
+            try {
+                chunk.append(objectMapper.writeValueAsString(user)).append('\n');
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("用户序列化失败: " + user.getId(), e);
+            }
+        }
+        return chunk.toString();
+    }
+    
+    private String toCsv(List<UserDTO> page) {
+        StringBuilder chunk = new StringBuilder(page.size() * 160);
+        for (UserDTO user : page) {
+            chunk.append(csvField(user.getId())).append(',')
+                 .append(csvField(user.getName())).append(',')
+                 .append(csvField(user.getEmail())).append(',')
+                 .append(csvField(user.getAccountType())).append(',')
+                 .append(csvField(user.getIsActive())).append(',')
+                 .append(csvField(user.getCreateTime())).append(',')
+                 .append(csvField(user.getUpdateTime())).append('\n');
+        }
+        return chunk.toString();
+    }
+    
+    /**
+     * CSV 字段转义：含逗号、引号或换行时加引号；以公式字符开头时加前缀，防止表格软件执行
+     */
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+    
     /**
      * 健康检查
      */
@@ -333,6 +550,61 @@ public class UserHandler {
         }
     }
     
+    /**
+     * 批量操作单条结果（NDJSON 中的一行）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class BatchOperationResult {
+        private final long index;
+        private final String operation;
+        private final String userId;
+        private final boolean success;
+        private final UserDTO user;
+        private final String error;
+        
+        private BatchOperationResult(long index, String operation, String userId,
+                                     boolean success, UserDTO user, String error) {
+            this.index = index;
+            this.operation = operation;
+            this.userId = userId;
+            this.success = success;
+            this.user = user;
+            this.error = error;
+        }
+        
+        public static BatchOperationResult success(long index, String operation, String userId, UserDTO user) {
+            return new BatchOperationResult(index, operation, userId, true, user, null);
+        }
+        
+        public static BatchOperationResult failure(long index, String operation, String userId, String error) {
+            return new BatchOperationResult(index, operation, userId, false, null, error);
+        }
+        
+        public long getIndex() {
+            return index;
+        }
+        
+        public String getOperation() {
+            return operation;
+        }
+        
+        public String getUserId() {
+            return userId;
+        }
+        
+        public boolean isSuccess() {
+            return success;
+        }
+        
+        public UserDTO getUser() {
+            return user;
+        }
+        
+        public String getError() {
+            return error;
+        }
+    }
+    
     /**
      * 批量请求DTO
      */
@@ -0,0 +1,297 @@
+package com.javalaabs.webflux.monitoring;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步访问日志
+ * 请求线程只把字段引用写入预分配的环形缓冲区槽位（不格式化、不做 I/O），
+ * 后台单线程定时取出并格式化成每请求一行的 key=value 日志批量输出；
+ * 成功请求可按比例采样，错误和取消的请求总是记录；缓冲区满时丢弃并计数，绝不阻塞事件循环
+ */
+@Component
+public class AccessLog {
+    
+    private static final int MAX_BATCH_LINES = 1024;
+    
+    private final boolean enabled;
+    private final double sampleRate;
+    private final Entry[] ring;
+    private final int mask;
+    
+    // tail 由多个请求线程竞争认领，head 只由写出线程推进
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder sampledOutCount = new LongAdder();
+    
+    private final Scheduler writerScheduler;
+    private final Disposable ticker;
+    
+    public AccessLog(PerformanceMonitor performanceMonitor,
+                     @Value("${webflux.access-log.enabled:true}") boolean enabled,
+                     @Value("${webflux.access-log.sample-rate:1.0}") double sampleRate,
+                     @Value("${webflux.access-log.buffer-size:8192}") int bufferSize,
+                     @Value("${webflux.access-log.flush-interval:100ms}") Duration flushInterval) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        
+        // 容量取 2 的幂，槽位下标用位与计算
+        int capacity = Integer.highestOneBit(Math.max(1, bufferSize - 1)) << 1;
+        this.ring = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Entry();
+        }
+        this.mask = capacity - 1;
+        
+        performanceMonitor.registerAccessLogMetrics(this);
+        
+        // 写出在独立线程上进行，控制台 I/O 不会占用事件循环或并行调度器
+        this.writerScheduler = Schedulers.newSingle("access-log-writer", true);
+        this.ticker = enabled ?
+            Flux.interval(flushInterval, flushInterval, writerScheduler).subscribe(tick -> drain()) :
+            null;
+    }
+    
+    /**
+     * 生成请求ID：线程本地随机数，不经过共享的 SecureRandom，也没有跨线程竞争
+     */
+    public static String nextRequestId() {
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+    
+    /**
+     * 记录一次请求；只保存字段引用，格式化由后台线程完成
+     */
+    public void record(ServerHttpRequest request, String requestId, String route, int status,
+                       long durationNanos, long responseBytes, String outcome, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        // 错误和取消的请求总是记录，成功请求按比例采样
+        if (status < 400 && error == null && sampleRate < 1.0
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOutCount.increment();
+            return;
+        }
+        
+        long sequence = claim();
+        if (sequence < 0) {
+            droppedCount.increment();
+            return;
+        }
+        
+        Entry entry = ring[(int) (sequence & mask)];
+        entry.timestamp = System.currentTimeMillis();
+        entry.requestId = requestId;
+        entry.method = request.getMethod().name();
+        entry.path = request.getPath().value();
+        entry.route = route;
+        entry.status = status;
+        entry.durationNanos = durationNanos;
+        entry.responseBytes = responseBytes;
+        entry.forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+        entry.remoteAddress = request.getRemoteAddress();
+        entry.userAgent = request.getHeaders().getFirst("User-Agent");
+        entry.outcome = outcome;
+        entry.error = error;
+        // 最后发布序号，写出线程看到序号后其余字段一定可见
+        entry.published = sequence;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public int getPending() {
+        return (int) (tail.get() - head);
+    }
+    
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+    
+    public long getSampledOutCount() {
+        return sampledOutCount.sum();
+    }
+    
+    /**
+     * 关闭时停止定时器并写出剩余日志
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        drain();
+        writerScheduler.dispose();
+    }
+    
+    /**
+     * 认领一个槽位；写出线程还没消费到的槽位不会被覆盖，缓冲区满时返回 -1
+     */
+    private long claim() {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= ring.length) {
+                return -1;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+    
+    /**
+     * 单消费者：按序号取出已发布的槽位，每批拼成一个字符串输出一次；
+     * 遇到已认领但还没发布完的槽位就停下，留到下一次
+     */
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            StringBuilder lines = new StringBuilder(256);
+            long sequence = head;
+            while (true) {
+                int count = 0;
+                Entry entry;
+                while (count < MAX_BATCH_LINES && (entry = ring[(int) (sequence & mask)]).published == sequence) {
+                    format(entry, lines);
+                    entry.clear();
+                    sequence++;
+                    count++;
+                    head = sequence;
+                }
+                if (count == 0) {
+                    break;
+                }
+                System.out.print(lines);
+                writtenCount.add(count);
+                lines.setLength(0);
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+    
+    private static void format(Entry entry, StringBuilder line) {
+        line.append("access ts=").append(Instant.ofEpochMilli(entry.timestamp))
+            .append(" id=");
+        // 请求ID可能来自客户端的 X-Request-Id，与其他字段一样转义，不能伪造出额外字段
+        appendValue(line, entry.requestId);
+        line.append(" method=").append(entry.method)
+            .append(" path=");
+        appendValue(line, entry.path);
+        line.append(" route=");
+        appendValue(line, entry.route != null ? entry.route : RequestMeters.UNMATCHED_ROUTE);
+        line.append(" status=").append(entry.status)
+            .append(" duration_ms=").append(entry.durationNanos / 1_000_000)
+            .append('.').append((entry.durationNanos / 1_000) % 1_000 / 100)
+            .append(" bytes=").append(entry.responseBytes)
+            .append(" remote=");
+        appendValue(line, remote(entry));
+        line.append(" outcome=").append(entry.outcome)
+            .append(" ua=");
+        appendValue(line, entry.userAgent);
+        if (entry.error != null) {
+            line.append(" error=");
+            appendValue(line, entry.error.getClass().getSimpleName() + ": " + entry.error.getMessage());
+        }
+        line.append('\n');
+    }
+    
+    private static String remote(Entry entry) {
+        if (entry.forwardedFor != null && !entry.forwardedFor.isEmpty()) {
+            int comma = entry.forwardedFor.indexOf(',');
+            return (comma < 0 ? entry.forwardedFor : entry.forwardedFor.substring(0, comma)).trim();
+        }
+        InetSocketAddress address = entry.remoteAddress;
+        return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : null;
+    }
+    
+    /**
+     * 含空格、引号或控制字符的值加引号并转义，缺失的值写成 -
+     */
+    private static void appendValue(StringBuilder line, String value) {
+        if (value == null || value.isEmpty()) {
+            line.append('-');
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '\\' || c == '=';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < ' ') {
+                line.append(' ');
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+    
+    /**
+     * 预分配的槽位，写出后清空引用以便回收
+     */
+    private static final class Entry {
+        private volatile long published = -1;
+        private long timestamp;
+        private String requestId;
+        private String method;
+        private String path;
+        private String route;
+        private int status;
+        private long durationNanos;
+        private long responseBytes;
+        private String forwardedFor;
+        private InetSocketAddress remoteAddress;
+        private String userAgent;
+        private String outcome;
+        private Throwable error;
+        
+        private void clear() {
+            requestId = null;
+            method = null;
+            path = null;
+            route = null;
+            forwardedFor = null;
+            remoteAddress = null;
+            userAgent = null;
+            outcome = null;
+            error = null;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.netty.channel.EventLoopGroup;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事件循环阻塞检测（默认关闭）
+ * 独立的看门狗线程定期向每个 reactor-netty 事件循环线程和 Reactor parallel 线程投递探针任务，
+ * 探针从投递到执行的耗时即该线程的调度延迟；探针超过阈值仍未执行时抓取该线程的调用栈，
+ * 记为一次阻塞并保留最近的若干条，通过 HealthHandler 的指标接口查看
+ */
+@Component
+public class EventLoopWatchdog {
+    
+    private static final int MAX_OFFENDERS = 10;
+    private static final int MAX_STACK_DEPTH = 20;
+    
+    private final PerformanceMonitor performanceMonitor;
+    private final ObjectProvider<ReactorResourceFactory> resourceFactory;
+    private final boolean enabled;
+    private final Duration interval;
+    private final long thresholdNanos;
+    
+    private final List<Probe> probes = new CopyOnWriteArrayList<>();
+    private final Map<String, LongAdder> blockedCounts = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> offenders = new ArrayDeque<>();
+    private final List<Disposable> workers = new ArrayList<>();
+    
+    private Scheduler watchdogScheduler;
+    private Disposable ticker;
+    
+    public EventLoopWatchdog(PerformanceMonitor performanceMonitor,
+                             ObjectProvider<ReactorResourceFactory> resourceFactory,
+                             @Value("${webflux.watchdog.enabled:false}") boolean enabled,
+                             @Value("${webflux.watchdog.interval:100ms}") Duration interval,
+                             @Value("${webflux.watchdog.threshold:200ms}") Duration threshold) {
+        this.performanceMonitor = performanceMonitor;
+        this.resourceFactory = resourceFactory;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.thresholdNanos = threshold.toNanos();
+    }
+    
+    /**
+     * 服务器启动后开始探测：每个 Netty 服务端事件循环线程一个探针，parallel 调度器每个线程一个探针
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        
+        ReactorResourceFactory factory = resourceFactory.getIfAvailable();
+        LoopResources loopResources = factory != null && factory.getLoopResources() != null ?
+            factory.getLoopResources() : HttpResources.get();
+        EventLoopGroup eventLoops = loopResources.onServer(LoopResources.DEFAULT_NATIVE);
+        for (EventExecutor executor : eventLoops) {
+            watch("reactor-netty", executor);
+        }
+        
+        // parallel 调度器按轮询把 Worker 分配到各个线程，创建与线程数相同的 Worker 即可覆盖全部线程
+        for (int i = 0; i < Schedulers.DEFAULT_POOL_SIZE; i++) {
+            Scheduler.Worker worker = Schedulers.parallel().createWorker();
+            workers.add(worker);
+            watch("parallel", worker::schedule);
+        }
+        
+        begin();
+        System.out.println("事件循环阻塞检测已启动: " + probes.size() + " 个线程，阈值 "
+                           + Duration.ofNanos(thresholdNanos).toMillis() + "ms");
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public long getBlockedCount(String pool) {
+        LongAdder count = blockedCounts.get(pool);
+        return count != null ? count.sum() : 0;
+    }
+    
+    /**
+     * 各线程池的探针数、阻塞次数、当前最大调度延迟，以及最近的阻塞线程及调用栈
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        if (!enabled) {
+            return snapshot;
+        }
+        snapshot.put("thresholdMs", Duration.ofNanos(thresholdNanos).toMillis());
+        
+        Map<String, Map<String, Object>> pools = new LinkedHashMap<>();
+        for (Probe probe : probes) {
+            Map<String, Object> pool = pools.computeIfAbsent(probe.pool, name -> {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("threads", 0);
+                stats.put("blocked", getBlockedCount(name));
+                stats.put("maxLagMs", 0.0);
+                return stats;
+            });
+            pool.put("threads", (int) pool.get("threads") + 1);
+            pool.put("maxLagMs", Math.max((double) pool.get("maxLagMs"), probe.lastLagNanos / 1_000_000.0));
+        }
+        snapshot.put("pools", pools);
+        
+        synchronized (offenders) {
+            snapshot.put("lastOffenders", new ArrayList<>(offenders));
+        }
+        return snapshot;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        workers.forEach(Disposable::dispose);
+        if (watchdogScheduler != null) {
+            watchdogScheduler.dispose();
+        }
+    }
+    
+    /**
+     * 为一个线程（执行器）添加探针
+     */
+    void watch(String pool, Executor executor) {
+        if (blockedCounts.putIfAbsent(pool, new LongAdder()) == null) {
+            lagTimers.put(pool, performanceMonitor.registerEventLoopMetrics(this, pool));
+        }
+        probes.add(new Probe(pool, executor, lagTimers.get(pool)));
+    }
+    
+    /**
+     * 看门狗在自己的线程上定时检查，不依赖被监控的 parallel 调度器
+     */
+    void begin() {
+        watchdogScheduler = Schedulers.newSingle("event-loop-watchdog", true);
+        ticker = Flux.interval(interval, interval, watchdogScheduler)
+                     .subscribe(tick -> check());
+    }
+    
+    private void check() {
+        long now = System.nanoTime();
+        for (Probe probe : probes) {
+            probe.check(now);
+        }
+    }
+    
+    private void report(Probe probe, long stalledNanos) {
+        Thread thread = probe.thread;
+        List<String> stack = new ArrayList<>();
+        if (thread != null) {
+            StackTraceElement[] frames = thread.getStackTrace();
+            for (int i = 0; i < Math.min(frames.length, MAX_STACK_DEPTH); i++) {
+                stack.add(frames[i].toString());
+            }
+        }
+        
+        Map<String, Object> offender = new LinkedHashMap<>();
+        offender.put("pool", probe.pool);
+        offender.put("thread", thread != null ? thread.getName() : "unknown");
+        offender.put("blockedMs", stalledNanos / 1_000_000);
+        offender.put("timestamp", Instant.now());
+        offender.put("stack", stack);
+        synchronized (offenders) {
+            if (offenders.size() >= MAX_OFFENDERS) {
+                offenders.removeFirst();
+            }
+            offenders.addLast(offender);
+        }
+        blockedCounts.get(probe.pool).increment();
+        
+        System.err.println("检测到事件循环阻塞: " + offender.get("thread") + " 已阻塞 " + offender.get("blockedMs")
+                           + "ms，位置: " + (stack.isEmpty() ? "unknown" : stack.get(0)));
+    }
+    
+    /**
+     * 单个线程的探针：同一时刻最多只有一个在途的探针任务，卡住期间同一次阻塞只报告一次；
+     * 被监控线程上只记下延迟，写入指标放在看门狗线程上，避免探针本身占用事件循环
+     */
+    private final class Probe implements Runnable {
+        private final String pool;
+        private final Executor executor;
+        private final Timer lagTimer;
+        
+        private volatile Thread thread;
+        private volatile boolean pending;
+        private volatile long submittedAt;
+        private volatile long lastLagNanos;
+        private boolean measured;
+        private boolean reported;
+        
+        private Probe(String pool, Executor executor, Timer lagTimer) {
+            this.pool = pool;
+            this.executor = executor;
+            this.lagTimer = lagTimer;
+        }
+        
+        private void check(long now) {
+            if (!pending) {
+                if (measured) {
+                    measured = false;
+                    lagTimer.record(lastLagNanos, TimeUnit.NANOSECONDS);
+                }
+                reported = false;
+                submittedAt = now;
+                pending = true;
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    pending = false;
+                }
+                return;
+            }
+            long stalled = now - submittedAt;
+            if (stalled >= thresholdNanos && !reported) {
+                reported = true;
+                report(this, stalled);
+            }
+        }
+        
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            long lag = System.nanoTime() - submittedAt;
+            lastLagNanos = lag;
+            measured = true;
+            pending = false;
+        }
+    }
+}
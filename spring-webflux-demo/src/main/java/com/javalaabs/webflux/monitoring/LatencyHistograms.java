@@ -0,0 +1,284 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按路由的滚动窗口延迟直方图
+ * 每个 (路由模板, 状态码类别) 一个 HdrHistogram Recorder，请求线程无锁、无等待地记录延迟（微秒）；
+ * 后台每个切片周期取出一次区间直方图放入环形切片数组，查询时合并最近 1m/5m/15m 的切片计算分位数，
+ * 数据最多滞后一个切片；可选的 SLO 按路由统计达标/未达标请求数，并计算各窗口的错误预算消耗速率
+ */
+@Component
+public class LatencyHistograms {
+    
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final Duration[] WINDOWS = {Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(15)};
+    private static final String[] WINDOW_NAMES = {"1m", "5m", "15m"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+    
+    private final MeterRegistry meterRegistry;
+    private final Duration slice;
+    private final int sliceCount;
+    private final int maxRoutes;
+    private final long sloThresholdMicros;
+    private final double sloObjective;
+    
+    private final ConcurrentHashMap<String, RouteLatency> routes = new ConcurrentHashMap<>();
+    private final RouteLatency overflow;
+    private final Disposable ticker;
+    
+    public LatencyHistograms(MeterRegistry meterRegistry,
+                             @Value("${webflux.metrics.latency.slice:10s}") Duration slice,
+                             @Value("${webflux.metrics.max-routes:200}") int maxRoutes,
+                             @Value("${webflux.metrics.latency.slo.threshold:}") String sloThreshold,
+                             @Value("${webflux.metrics.latency.slo.objective:0.999}") double sloObjective) {
+        this.meterRegistry = meterRegistry;
+        this.slice = slice;
+        this.sliceCount = slicesIn(WINDOWS[WINDOWS.length - 1]);
+        this.maxRoutes = maxRoutes;
+        this.sloThresholdMicros = sloThreshold == null || sloThreshold.isBlank() ?
+            -1 : DurationStyle.detectAndParse(sloThreshold.trim()).toNanos() / 1_000;
+        this.sloObjective = sloObjective;
+        this.overflow = new RouteLatency(RequestMeters.OVERFLOW_ROUTE);
+        
+        this.ticker = Flux.interval(slice, slice)
+                          .subscribe(tick -> rotate());
+    }
+    
+    /**
+     * 记录一次请求的延迟；route 为匹配到的路由模板，未匹配到路由时为 null
+     */
+    public void record(String route, int statusCode, long durationNanos) {
+        RouteLatency latency = forRoute(route != null ? route : RequestMeters.UNMATCHED_ROUTE);
+        long micros = Math.max(1, durationNanos / 1_000);
+        latency.recorder(RequestMeters.statusIndex(statusCode)).recordValue(micros);
+        
+        if (sloThresholdMicros > 0) {
+            boolean good = statusCode < 500 && micros <= sloThresholdMicros;
+            latency.sloCounter(good).increment();
+        }
+    }
+    
+    /**
+     * 各路由各状态码类别在 1m/5m/15m 窗口内的请求数和分位数（毫秒）；route 不为空时只返回该路由
+     */
+    public Map<String, Object> snapshot(String route) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (RouteLatency latency : routes.values()) {
+            if (route == null || route.equals(latency.route)) {
+                entries.add(latency.snapshot());
+            }
+        }
+        if (route == null || route.equals(overflow.route)) {
+            Map<String, Object> overflowSnapshot = overflow.snapshot();
+            if (!((List<?>) overflowSnapshot.get("statuses")).isEmpty()) {
+                entries.add(overflowSnapshot);
+            }
+        }
+        
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", Instant.now());
+        snapshot.put("slice", slice.toString());
+        if (sloThresholdMicros > 0) {
+            snapshot.put("slo", Map.of("thresholdMs", sloThresholdMicros / 1000.0, "objective", sloObjective));
+        }
+        snapshot.put("routes", entries);
+        return snapshot;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        ticker.dispose();
+    }
+    
+    private RouteLatency forRoute(String route) {
+        RouteLatency latency = routes.get(route);
+        if (latency != null) {
+            return latency;
+        }
+        if (routes.size() >= maxRoutes) {
+            return overflow;
+        }
+        return routes.computeIfAbsent(route, RouteLatency::new);
+    }
+    
+    /**
+     * 切片轮转：每个 Recorder 交出当前区间的直方图，写入环形切片数组并覆盖最旧的切片
+     */
+    void rotate() {
+        for (RouteLatency latency : routes.values()) {
+            latency.rotate();
+        }
+        overflow.rotate();
+    }
+    
+    private int slicesIn(Duration window) {
+        return (int) ((window.toMillis() + slice.toMillis() - 1) / slice.toMillis());
+    }
+    
+    private static double millis(long micros) {
+        return Math.round(micros / 100.0) / 10.0;
+    }
+    
+    /**
+     * 单个路由模板的直方图；请求线程只访问 Recorder，切片数组只在轮转和查询时加锁访问
+     */
+    private final class RouteLatency {
+        private final String route;
+        private final AtomicReferenceArray<Recorder> recorders =
+            new AtomicReferenceArray<>(RequestMeters.STATUS_CLASSES.length);
+        private final Histogram[][] slices = new Histogram[RequestMeters.STATUS_CLASSES.length][];
+        private final Histogram[] spares = new Histogram[RequestMeters.STATUS_CLASSES.length];
+        private int cursor;
+        
+        private volatile Counter sloGood;
+        private volatile Counter sloBad;
+        
+        private RouteLatency(String route) {
+            this.route = route;
+        }
+        
+        private Recorder recorder(int statusIndex) {
+            Recorder recorder = recorders.get(statusIndex);
+            if (recorder == null) {
+                // 使用紧凑直方图，内存只随实际出现的延迟区间增长
+                recorders.compareAndSet(statusIndex, null, new Recorder(SIGNIFICANT_DIGITS, true));
+                recorder = recorders.get(statusIndex);
+            }
+            return recorder;
+        }
+        
+        private Counter sloCounter(boolean good) {
+            Counter counter = good ? sloGood : sloBad;
+            if (counter == null) {
+                counter = Counter.builder("webflux.slo.requests")
+                                 .tag("uri", route)
+                                 .tag("outcome", good ? "good" : "bad")
+                                 .description("Requests counted against the latency SLO")
+                                 .register(meterRegistry);
+                if (good) {
+                    sloGood = counter;
+                } else {
+                    sloBad = counter;
+                }
+            }
+            return counter;
+        }
+        
+        private synchronized void rotate() {
+            for (int i = 0; i < RequestMeters.STATUS_CLASSES.length; i++) {
+                Recorder recorder = recorders.get(i);
+                if (recorder == null) {
+                    continue;
+                }
+                if (slices[i] == null) {
+                    slices[i] = new Histogram[sliceCount];
+                }
+                // 交给 Recorder 回收的直方图随即成为其活动直方图，不能再作为切片或备用保留
+                Histogram evicted = slices[i][cursor];
+                Histogram interval;
+                if (evicted != null) {
+                    interval = recorder.getIntervalHistogram(evicted);
+                } else {
+                    interval = recorder.getIntervalHistogram(spares[i]);
+                    spares[i] = null;
+                }
+                // 空切片不保留，直方图留作下次回收
+                if (interval.getTotalCount() == 0) {
+                    if (spares[i] == null) {
+                        spares[i] = interval;
+                    }
+                    slices[i][cursor] = null;
+                } else {
+                    slices[i][cursor] = interval;
+                }
+            }
+            cursor = (cursor + 1) % sliceCount;
+        }
+        
+        private synchronized Map<String, Object> snapshot() {
+            List<Map<String, Object>> statuses = new ArrayList<>();
+            long[] windowTotals = new long[WINDOWS.length];
+            long[] windowBad = new long[WINDOWS.length];
+            
+            for (int i = 0; i < RequestMeters.STATUS_CLASSES.length; i++) {
+                if (slices[i] == null) {
+                    continue;
+                }
+                Map<String, Object> windows = new LinkedHashMap<>();
+                for (int w = 0; w < WINDOWS.length; w++) {
+                    Histogram merged = merge(slices[i], slicesIn(WINDOWS[w]));
+                    windows.put(WINDOW_NAMES[w], summarize(merged));
+                    
+                    windowTotals[w] += merged.getTotalCount();
+                    if (sloThresholdMicros > 0 && merged.getTotalCount() > 0) {
+                        windowBad[w] += RequestMeters.STATUS_CLASSES[i].equals("5xx") ?
+                            merged.getTotalCount() :
+                            merged.getTotalCount() - merged.getCountBetweenValues(0, sloThresholdMicros);
+                    }
+                }
+                Map<String, Object> status = new LinkedHashMap<>();
+                status.put("status", RequestMeters.STATUS_CLASSES[i]);
+                status.put("windows", windows);
+                statuses.add(status);
+            }
+            
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("route", route);
+            snapshot.put("statuses", statuses);
+            if (sloThresholdMicros > 0) {
+                // 消耗速率 = 窗口内未达标比例 / 错误预算（1 - 目标），大于 1 表示预算消耗快于允许速度
+                Map<String, Object> burnRates = new LinkedHashMap<>();
+                for (int w = 0; w < WINDOWS.length; w++) {
+                    double badRatio = windowTotals[w] == 0 ? 0 : (double) windowBad[w] / windowTotals[w];
+                    burnRates.put(WINDOW_NAMES[w], Math.round(badRatio / (1 - sloObjective) * 100) / 100.0);
+                }
+                snapshot.put("burnRate", burnRates);
+            }
+            return snapshot;
+        }
+        
+        /**
+         * 合并当前游标之前的最近 count 个切片
+         */
+        private Histogram merge(Histogram[] ring, int count) {
+            Histogram merged = new Histogram(SIGNIFICANT_DIGITS);
+            for (int k = 1; k <= Math.min(count, sliceCount); k++) {
+                Histogram histogram = ring[(cursor - k + sliceCount) % sliceCount];
+                if (histogram != null) {
+                    merged.add(histogram);
+                }
+            }
+            return merged;
+        }
+        
+        private Map<String, Object> summarize(Histogram histogram) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", histogram.getTotalCount());
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                summary.put(PERCENTILE_NAMES[p], millis(histogram.getValueAtPercentile(PERCENTILES[p])));
+            }
+            summary.put("max", millis(histogram.getMaxValue()));
+            return summary;
+        }
+    }
+}
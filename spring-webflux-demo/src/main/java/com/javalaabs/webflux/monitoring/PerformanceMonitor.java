@@ -1,6 +1,20 @@
 package com.javalaabs.webflux.monitoring;
 
+import com.javalaabs.webflux.cache.NearCache;
+import com.javalaabs.webflux.cache.ProbabilisticEarlyRefresh;
+import com.javalaabs.webflux.cache.SingleFlight;
+import com.javalaabs.webflux.search.UserSearchIndex;
+import com.javalaabs.webflux.service.UserActivityWriter;
+import com.javalaabs.webflux.storage.AvatarStorage;
+import com.javalaabs.webflux.streaming.ClusterEventBus;
+import com.javalaabs.webflux.streaming.EventHub;
+import com.javalaabs.webflux.streaming.HeartbeatTicker;
+import com.javalaabs.webflux.streaming.SlowConsumerGuard;
+import com.javalaabs.webflux.streaming.SlowConsumerPolicy;
+import com.javalaabs.webflux.streaming.UserUpdateRouter;
 import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
@@ -15,10 +29,10 @@ import java.util.concurrent.atomic.AtomicLong;
 @Component
 public class PerformanceMonitor {
     
+    private static final int DEFAULT_MAX_ROUTES = 200;
+    
     private final MeterRegistry meterRegistry;
-    private final Timer requestTimer;
     private final Counter requestCounter;
-    private final Counter errorCounter;
     private final Gauge activeConnections;
     private final AtomicLong activeConnectionCount;
     
@@ -28,23 +42,30 @@ public class PerformanceMonitor {
     private final Counter userDeletedCounter;
     private final DistributionSummary responseSize;
     
+    // 按路由模板缓存的请求指标
+    private final RequestMeters requestMeters;
+    
+    // 活动批量写入耗时，在注册活动写入器指标时创建
+    private volatile Timer activityFlushSuccessTimer;
+    private volatile Timer activityFlushFailureTimer;
+    
     public PerformanceMonitor(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_MAX_ROUTES);
+    }
+    
+    @Autowired
+    public PerformanceMonitor(MeterRegistry meterRegistry,
+                              @Value("${webflux.metrics.max-routes:200}") int maxRoutes) {
         this.meterRegistry = meterRegistry;
         this.activeConnectionCount = new AtomicLong(0);
+        this.requestMeters = new RequestMeters(meterRegistry, maxRoutes);
         
-        // 基础指标
-        this.requestTimer = Timer.builder("webflux.request.duration")
-                                .description("WebFlux request duration")
-                                .register(meterRegistry);
-        
+        // 基础指标；webflux.request.duration 和 webflux.error.count 只由 RequestMeters 按路由注册，
+        // 同名指标不能再有不带标签的版本，否则 Prometheus 会拒绝标签不一致的注册
         this.requestCounter = Counter.builder("webflux.request.count")
                                    .description("WebFlux request count")
                                    .register(meterRegistry);
         
-        this.errorCounter = Counter.builder("webflux.error.count")
-                                 .description("WebFlux error count")
-                                 .register(meterRegistry);
-        
         this.activeConnections = Gauge.builder("webflux.connections.active", this, obj -> (double) obj.getActiveConnectionCount())
                                      .description("Active WebFlux connections")
                                      .register(meterRegistry);
@@ -65,6 +86,10 @@ public class PerformanceMonitor {
         this.responseSize = DistributionSummary.builder("webflux.response.size")
                                              .description("Response size in bytes")
                                              .register(meterRegistry);
+        
+        Gauge.builder("webflux.request.routes", requestMeters, RequestMeters::getRouteCount)
+             .description("Route templates tracked by request metrics")
+             .register(meterRegistry);
     }
     
     /**
@@ -76,23 +101,10 @@ public class PerformanceMonitor {
     }
     
     /**
-     * 记录请求处理时间和状态
+     * 记录请求处理时间和状态；route 为匹配到的路由模板（如 /api/users/{id}），未匹配到路由时为 null
      */
-    public void recordRequest(Timer.Sample sample, String method, String uri, int statusCode) {
-        sample.stop(Timer.builder("webflux.request.duration")
-                        .tag("method", method)
-                        .tag("uri", sanitizeUri(uri))
-                        .tag("status", String.valueOf(statusCode))
-                        .register(meterRegistry));
-        
-        // 记录错误
-        if (statusCode >= 400) {
-            Counter.builder("webflux.error.count")
-                   .tag("method", method)
-                   .tag("status", String.valueOf(statusCode))
-                   .register(meterRegistry)
-                   .increment();
-        }
+    public void recordRequest(Timer.Sample sample, String route, String method, int statusCode) {
+        requestMeters.record(sample, route, method, statusCode);
     }
     
     /**
@@ -180,6 +192,296 @@ public class PerformanceMonitor {
              .record(duration);
     }
     
+    /**
+     * 注册近端缓存指标（命中、未命中、淘汰次数及当前大小）
+     */
+    public void registerCacheMetrics(String cacheName, NearCache<?, ?> cache) {
+        FunctionCounter.builder("cache.near.hits", cache, NearCache::getHitCount)
+                       .tag("cache", cacheName)
+                       .description("Near cache hits")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("cache.near.misses", cache, NearCache::getMissCount)
+                       .tag("cache", cacheName)
+                       .description("Near cache misses")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("cache.near.evictions", cache, NearCache::getEvictionCount)
+                       .tag("cache", cacheName)
+                       .description("Near cache evictions (size and TTL)")
+                       .register(meterRegistry);
+        
+        Gauge.builder("cache.near.size", cache, NearCache::size)
+             .tag("cache", cacheName)
+             .description("Near cache entry count")
+             .register(meterRegistry);
+    }
+    
+    /**
+     * 注册请求合并与提前刷新指标
+     */
+    public void registerSingleFlightMetrics(String cacheName, SingleFlight<?, ?> singleFlight,
+                                            ProbabilisticEarlyRefresh earlyRefresh) {
+        FunctionCounter.builder("cache.singleflight.loads", singleFlight, SingleFlight::getExecutionCount)
+                       .tag("cache", cacheName)
+                       .description("Loads actually executed after cache misses")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("cache.singleflight.coalesced", singleFlight, SingleFlight::getCoalescedCount)
+                       .tag("cache", cacheName)
+                       .description("Callers that joined an in-flight load")
+                       .register(meterRegistry);
+        
+        Gauge.builder("cache.singleflight.inflight", singleFlight, SingleFlight::getInFlightCount)
+             .tag("cache", cacheName)
+             .description("Loads currently in flight")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("cache.early.refresh", earlyRefresh, ProbabilisticEarlyRefresh::getRefreshCount)
+                       .tag("cache", cacheName)
+                       .description("Probabilistic early refreshes triggered")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册内存搜索索引指标
+     */
+    public void registerSearchIndexMetrics(UserSearchIndex searchIndex) {
+        Gauge.builder("search.index.documents", searchIndex, UserSearchIndex::getDocumentCount)
+             .description("Users held in the in-memory search index")
+             .register(meterRegistry);
+        
+        Gauge.builder("search.index.terms", searchIndex, UserSearchIndex::getTermCount)
+             .description("Distinct trigrams in the in-memory search index")
+             .register(meterRegistry);
+        
+        Gauge.builder("search.index.ready", searchIndex, index -> index.isReady() ? 1 : 0)
+             .description("Whether the in-memory search index has finished building")
+             .register(meterRegistry);
+    }
+    
+    /**
+     * 注册活动异步写入器指标（队列深度、写入/丢弃/失败数量）
+     */
+    public void registerActivityWriterMetrics(UserActivityWriter writer) {
+        Gauge.builder("activity.writer.queue.depth", writer, UserActivityWriter::getQueueDepth)
+             .description("Activity records waiting to be flushed")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("activity.writer.written", writer, UserActivityWriter::getWrittenCount)
+                       .description("Activity records written by batched inserts")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("activity.writer.dropped", writer, UserActivityWriter::getDroppedCount)
+                       .description("Activity records dropped because the queue was full")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("activity.writer.failed", writer, UserActivityWriter::getFailedCount)
+                       .description("Activity records lost after a failed flush")
+                       .register(meterRegistry);
+        
+        this.activityFlushSuccessTimer = activityFlushTimer("success");
+        this.activityFlushFailureTimer = activityFlushTimer("failure");
+    }
+    
+    private Timer activityFlushTimer(String outcome) {
+        return Timer.builder("activity.writer.flush")
+                    .tag("outcome", outcome)
+                    .description("Latency of batched activity inserts")
+                    .register(meterRegistry);
+    }
+    
+    /**
+     * 注册访问日志指标（待写出、已写出、丢弃、采样跳过数量）
+     */
+    public void registerAccessLogMetrics(AccessLog accessLog) {
+        Gauge.builder("access.log.pending", accessLog, AccessLog::getPending)
+             .description("Access log lines waiting to be written")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("access.log.written", accessLog, AccessLog::getWrittenCount)
+                       .description("Access log lines written")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("access.log.dropped", accessLog, AccessLog::getDroppedCount)
+                       .description("Access log lines dropped because the ring buffer was full")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("access.log.sampled.out", accessLog, AccessLog::getSampledOutCount)
+                       .description("Successful requests skipped by access log sampling")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册头像存储指标（新存储、去重、超限拒绝数量）
+     */
+    public void registerAvatarStorageMetrics(AvatarStorage storage) {
+        FunctionCounter.builder("avatar.storage.stored", storage, AvatarStorage::getStoredCount)
+                       .description("Avatar files written to storage")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("avatar.storage.deduplicated", storage, AvatarStorage::getDeduplicatedCount)
+                       .description("Avatar uploads whose content was already stored")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("avatar.storage.rejected", storage, AvatarStorage::getRejectedCount)
+                       .description("Avatar uploads aborted for exceeding the size limit")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 记录一次活动批量写入的耗时
+     */
+    public void recordActivityFlush(long durationNanos, boolean success) {
+        (success ? activityFlushSuccessTimer : activityFlushFailureTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * 注册用户更新路由指标（订阅者数量、发布/投递次数）
+     */
+    public void registerUpdateRouterMetrics(UserUpdateRouter router) {
+        Gauge.builder("streaming.subscribers", router, UserUpdateRouter::getUserSubscriberCount)
+             .tag("channel", "user")
+             .description("Subscribers routed by userId")
+             .register(meterRegistry);
+        
+        Gauge.builder("streaming.subscribers", router, UserUpdateRouter::getFirehoseSubscriberCount)
+             .tag("channel", "firehose")
+             .description("Subscribers receiving every update")
+             .register(meterRegistry);
+        
+        Gauge.builder("streaming.routed.users", router, UserUpdateRouter::getRoutedUserCount)
+             .description("Distinct userIds with at least one subscriber")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.events.published", router, UserUpdateRouter::getPublishedCount)
+                       .description("User update events published to the router")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.events.delivered", router, UserUpdateRouter::getDeliveredCount)
+                       .description("Deliveries to individual subscribers")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册慢消费者保护指标（按策略统计丢弃、合并和断开次数）
+     */
+    public void registerSlowConsumerMetrics(SlowConsumerGuard guard) {
+        for (SlowConsumerPolicy policy : SlowConsumerPolicy.values()) {
+            FunctionCounter.builder("streaming.events.dropped", guard, g -> g.getDroppedCount(policy))
+                           .tag("policy", policy.getValue())
+                           .description("Events dropped from full subscriber buffers")
+                           .register(meterRegistry);
+        }
+        
+        FunctionCounter.builder("streaming.events.conflated", guard, SlowConsumerGuard::getConflatedCount)
+                       .tag("policy", SlowConsumerPolicy.CONFLATE.getValue())
+                       .description("Pending events replaced by a newer event for the same user")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.subscribers.disconnected", guard, SlowConsumerGuard::getDisconnectedCount)
+                       .tag("policy", SlowConsumerPolicy.DISCONNECT.getValue())
+                       .description("Subscribers disconnected after exceeding the drop limit")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册共享心跳指标（发送与因连接活跃而省略的心跳次数）
+     */
+    public void registerHeartbeatMetrics(HeartbeatTicker ticker) {
+        FunctionCounter.builder("streaming.heartbeats", ticker, HeartbeatTicker::getSentCount)
+                       .tag("outcome", "sent")
+                       .description("Heartbeats sent to idle streaming connections")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.heartbeats", ticker, HeartbeatTicker::getSuppressedCount)
+                       .tag("outcome", "suppressed")
+                       .description("Heartbeats skipped because the connection sent data recently")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册跨节点事件总线指标（发送队列、发布/丢弃/失败/接收次数）
+     */
+    public void registerEventBusMetrics(ClusterEventBus eventBus) {
+        Gauge.builder("event.bus.queue.depth", eventBus, ClusterEventBus::getQueueDepth)
+             .tag("transport", eventBus.getTransportName())
+             .description("Events waiting to be published to other nodes")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("event.bus.published", eventBus, ClusterEventBus::getPublishedCount)
+                       .tag("transport", eventBus.getTransportName())
+                       .description("Events published to other nodes")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("event.bus.dropped", eventBus, ClusterEventBus::getDroppedCount)
+                       .tag("transport", eventBus.getTransportName())
+                       .description("Events dropped because the publish queue was full")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("event.bus.failed", eventBus, ClusterEventBus::getFailedCount)
+                       .tag("transport", eventBus.getTransportName())
+                       .description("Events that could not be serialized or published")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("event.bus.received", eventBus, ClusterEventBus::getReceivedCount)
+                       .tag("transport", eventBus.getTransportName())
+                       .description("Events received from other nodes")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册事件中心指标
+     */
+    public void registerEventHubMetrics(EventHub<?, ?> hub) {
+        Gauge.builder("streaming.hub.queue.depth", hub, EventHub::getQueueDepth)
+             .tag("hub", hub.getName())
+             .description("Events waiting in the hub queue for delivery")
+             .register(meterRegistry);
+        
+        Gauge.builder("streaming.hub.subscribers", hub, EventHub::getSubscriberCount)
+             .tag("hub", hub.getName())
+             .description("Subscribers attached to the hub")
+             .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.hub.emitted", hub, EventHub::getEmittedCount)
+                       .tag("hub", hub.getName())
+                       .description("Events accepted by the hub")
+                       .register(meterRegistry);
+        
+        FunctionCounter.builder("streaming.hub.dropped", hub, EventHub::getDroppedCount)
+                       .tag("hub", hub.getName())
+                       .description("Events dropped because the hub queue was full")
+                       .register(meterRegistry);
+    }
+    
+    /**
+     * 注册事件总线主题的投递延迟 Timer（发布到本节点收到），由事件总线按主题缓存复用
+     */
+    public Timer registerEventBusTopicMetrics(String topic) {
+        return Timer.builder("event.bus.lag")
+                    .tag("topic", topic)
+                    .description("Delay between publishing an event and receiving it on another node")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+    }
+    
+    /**
+     * 注册事件循环阻塞检测指标（每个线程池一组），返回该线程池的调度延迟 Timer 供探针复用
+     */
+    public Timer registerEventLoopMetrics(EventLoopWatchdog watchdog, String pool) {
+        FunctionCounter.builder("eventloop.blocked", watchdog, w -> w.getBlockedCount(pool))
+                       .tag("pool", pool)
+                       .description("Probes that stayed unscheduled past the blocking threshold")
+                       .register(meterRegistry);
+        
+        return Timer.builder("eventloop.lag")
+                    .tag("pool", pool)
+                    .description("Delay between submitting a watchdog probe and the thread running it")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+    }
+    
     /**
      * 获取系统指标
      */
@@ -202,27 +504,15 @@ public class PerformanceMonitor {
     public ApplicationMetrics getApplicationMetrics() {
         return ApplicationMetrics.builder()
                                 .totalRequests(requestCounter.count())
-                                .totalErrors(errorCounter.count())
+                                .totalErrors(requestMeters.getErrorCount())
                                 .activeConnections(activeConnectionCount.get())
                                 .usersCreated(userCreatedCounter.count())
                                 .usersDeleted(userDeletedCounter.count())
-                                .averageResponseTime(requestTimer.mean(TimeUnit.MILLISECONDS))
+                                .averageResponseTime(requestMeters.getMeanMillis())
                                 .timestamp(Instant.now())
                                 .build();
     }
     
-    /**
-     * 清理URI中的动态部分，用于标签
-     */
-    private String sanitizeUri(String uri) {
-        if (uri == null) return "unknown";
-        
-        // 替换动态路径参数
-        return uri.replaceAll("/[0-9a-fA-F-]{36}", "/{id}")  // UUID
-                 .replaceAll("/\\d+", "/{id}")               // 数字ID
-                 .replaceAll("/[^/]+@[^/]+", "/{email}");    // 邮箱
-    }
-    
     // 内部类：系统指标
     public static class SystemMetrics {
         private final long totalMemory;
@@ -0,0 +1,191 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 请求指标缓存
+ * 按 (路由模板, 请求方法, 状态码类别) 缓存已注册的 Timer/Counter，每个组合只在第一次出现时注册，
+ * 之后记录一次请求只有一次 ConcurrentHashMap 查找和两次数组下标访问，不构造标签也不查询注册表；
+ * 路由模板数量超过上限后统一计入 OTHER，随机 URL 无法让指标数量无限增长
+ */
+final class RequestMeters {
+    
+    static final String UNMATCHED_ROUTE = "UNMATCHED";
+    static final String OVERFLOW_ROUTE = "OTHER";
+    
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "OTHER"};
+    static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "UNKNOWN"};
+    
+    private final MeterRegistry meterRegistry;
+    private final int maxRoutes;
+    private final ConcurrentHashMap<String, RouteMeters> routes = new ConcurrentHashMap<>();
+    private final RouteMeters overflow;
+    private final AtomicBoolean overflowLogged = new AtomicBoolean();
+    
+    RequestMeters(MeterRegistry meterRegistry, int maxRoutes) {
+        this.meterRegistry = meterRegistry;
+        this.maxRoutes = maxRoutes;
+        this.overflow = new RouteMeters(OVERFLOW_ROUTE);
+    }
+    
+    /**
+     * 记录一次请求；route 为匹配到的路由模板，没有匹配到路由时为 null
+     */
+    void record(Timer.Sample sample, String route, String method, int statusCode) {
+        RouteMeters meters = forRoute(route != null ? route : UNMATCHED_ROUTE);
+        int methodIndex = methodIndex(method);
+        int statusIndex = statusIndex(statusCode);
+        
+        sample.stop(meters.timer(methodIndex, statusIndex));
+        if (statusCode >= 400) {
+            meters.errorCounter(methodIndex, statusIndex).increment();
+        }
+    }
+    
+    int getRouteCount() {
+        return routes.size();
+    }
+    
+    /**
+     * 所有路由的错误请求总数
+     */
+    double getErrorCount() {
+        double total = overflow.errorCount();
+        for (RouteMeters meters : routes.values()) {
+            total += meters.errorCount();
+        }
+        return total;
+    }
+    
+    /**
+     * 所有路由的平均响应时间（毫秒）
+     */
+    double getMeanMillis() {
+        long count = 0;
+        double totalMillis = 0;
+        for (RouteMeters meters : routes.values()) {
+            count += meters.requestCount();
+            totalMillis += meters.totalMillis();
+        }
+        count += overflow.requestCount();
+        totalMillis += overflow.totalMillis();
+        return count == 0 ? 0 : totalMillis / count;
+    }
+    
+    private RouteMeters forRoute(String route) {
+        RouteMeters meters = routes.get(route);
+        if (meters != null) {
+            return meters;
+        }
+        if (routes.size() >= maxRoutes) {
+            if (overflowLogged.compareAndSet(false, true)) {
+                System.err.println("请求指标路由数量达到上限 " + maxRoutes + "，新路由计入 " + OVERFLOW_ROUTE);
+            }
+            return overflow;
+        }
+        return routes.computeIfAbsent(route, RouteMeters::new);
+    }
+    
+    private static int methodIndex(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "HEAD" -> 1;
+            case "POST" -> 2;
+            case "PUT" -> 3;
+            case "PATCH" -> 4;
+            case "DELETE" -> 5;
+            case "OPTIONS" -> 6;
+            case "TRACE" -> 7;
+            default -> 8;
+        };
+    }
+    
+    static int statusIndex(int statusCode) {
+        int statusClass = statusCode / 100;
+        return statusClass >= 1 && statusClass <= 5 ? statusClass - 1 : STATUS_CLASSES.length - 1;
+    }
+    
+    /**
+     * 单个路由模板的指标，按 方法 x 状态码类别 展开成数组，首次使用时注册
+     */
+    private final class RouteMeters {
+        private final String route;
+        private final AtomicReferenceArray<Timer> timers;
+        private final AtomicReferenceArray<Counter> errorCounters;
+        
+        private RouteMeters(String route) {
+            this.route = route;
+            this.timers = new AtomicReferenceArray<>(METHODS.length * STATUS_CLASSES.length);
+            this.errorCounters = new AtomicReferenceArray<>(METHODS.length * STATUS_CLASSES.length);
+        }
+        
+        private Timer timer(int methodIndex, int statusIndex) {
+            int slot = methodIndex * STATUS_CLASSES.length + statusIndex;
+            Timer timer = timers.get(slot);
+            if (timer == null) {
+                // 注册是幂等的，并发首次注册拿到的是同一个 Timer
+                timer = Timer.builder("webflux.request.duration")
+                             .tag("method", METHODS[methodIndex])
+                             .tag("uri", route)
+                             .tag("status", STATUS_CLASSES[statusIndex])
+                             .register(meterRegistry);
+                timers.set(slot, timer);
+            }
+            return timer;
+        }
+        
+        private Counter errorCounter(int methodIndex, int statusIndex) {
+            int slot = methodIndex * STATUS_CLASSES.length + statusIndex;
+            Counter counter = errorCounters.get(slot);
+            if (counter == null) {
+                counter = Counter.builder("webflux.error.count")
+                                 .tag("method", METHODS[methodIndex])
+                                 .tag("uri", route)
+                                 .tag("status", STATUS_CLASSES[statusIndex])
+                                 .register(meterRegistry);
+                errorCounters.set(slot, counter);
+            }
+            return counter;
+        }
+        
+        private double errorCount() {
+            double total = 0;
+            for (int i = 0; i < errorCounters.length(); i++) {
+                Counter counter = errorCounters.get(i);
+                if (counter != null) {
+                    total += counter.count();
+                }
+            }
+            return total;
+        }
+        
+        private long requestCount() {
+            long total = 0;
+            for (int i = 0; i < timers.length(); i++) {
+                Timer timer = timers.get(i);
+                if (timer != null) {
+                    total += timer.count();
+                }
+            }
+            return total;
+        }
+        
+        private double totalMillis() {
+            double total = 0;
+            for (int i = 0; i < timers.length(); i++) {
+                Timer timer = timers.get(i);
+                if (timer != null) {
+                    total += timer.totalTime(TimeUnit.MILLISECONDS);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -5,209 +5,122 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
 import reactor.core.publisher.Mono;
-
-import java.util.UUID;
+import reactor.core.publisher.SignalType;
 
 /**
  * 请求监控过滤器
- * 自动监控所有HTTP请求的性能指标
+ * 自动监控所有HTTP请求的性能指标，并为每个请求写一行异步访问日志
  */
 @Component
 @Order(-1) // 高优先级，确保在其他过滤器之前执行
 public class RequestMonitoringFilter implements WebFilter {
     
     private static final String REQUEST_ID_ATTR = "requestId";
-    private static final String START_TIME_ATTR = "startTime";
-    private static final String TIMER_SAMPLE_ATTR = "timerSample";
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
     
     private final PerformanceMonitor performanceMonitor;
+    private final AccessLog accessLog;
+    private final LatencyHistograms latencyHistograms;
     
-    public RequestMonitoringFilter(PerformanceMonitor performanceMonitor) {
+    public RequestMonitoringFilter(PerformanceMonitor performanceMonitor, AccessLog accessLog,
+                                   LatencyHistograms latencyHistograms) {
         this.performanceMonitor = performanceMonitor;
+        this.accessLog = accessLog;
+        this.latencyHistograms = latencyHistograms;
     }
     
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        
-        // 生成请求ID
-        String requestId = UUID.randomUUID().toString();
+        // 沿用上游传入的请求ID，否则本地生成
+        String requestId = resolveRequestId(exchange.getRequest());
         exchange.getAttributes().put(REQUEST_ID_ATTR, requestId);
+        exchange.getResponse().getHeaders().set(REQUEST_ID_HEADER, requestId);
         
-        // 记录开始时间
-        long startTime = System.currentTimeMillis();
-        exchange.getAttributes().put(START_TIME_ATTR, startTime);
-        
-        // 开始计时
+        long startNanos = System.nanoTime();
         Timer.Sample timerSample = performanceMonitor.startTimer();
-        exchange.getAttributes().put(TIMER_SAMPLE_ATTR, timerSample);
         
         // 增加活跃连接数
         performanceMonitor.incrementActiveConnections();
         
-        // 记录请求开始日志
-        logRequestStart(request, requestId);
-        
         return chain.filter(exchange)
-                   .doOnSuccess(result -> handleRequestSuccess(exchange))
-                   .doOnError(error -> handleRequestError(exchange, error))
+                   .doOnSuccess(result -> complete(exchange, requestId, timerSample, startNanos, null))
+                   .doOnError(error -> complete(exchange, requestId, timerSample, startNanos, error))
                    .doFinally(signalType -> {
                        // 减少活跃连接数
                        performanceMonitor.decrementActiveConnections();
                        
-                       // 记录请求完成日志
-                       logRequestEnd(exchange, signalType.toString());
+                       // 客户端中途断开时没有完成信号，只记录访问日志
+                       if (signalType == SignalType.CANCEL) {
+                           accessLog.record(exchange.getRequest(), requestId, getRoutePattern(exchange),
+                                            getStatus(exchange.getResponse(), 499), System.nanoTime() - startNanos,
+                                            0, "cancel", null);
+                       }
                    });
     }
     
     /**
-     * 处理请求成功
+     * 请求结束：记录性能指标、延迟直方图和访问日志（出错时按 500 记录）
      */
-    private void handleRequestSuccess(ServerWebExchange exchange) {
-        ServerHttpRequest request = exchange.getRequest();
+    private void complete(ServerWebExchange exchange, String requestId, Timer.Sample timerSample,
+                          long startNanos, Throwable error) {
         ServerHttpResponse response = exchange.getResponse();
+        String route = getRoutePattern(exchange);
+        int status = error != null ? 500 : getStatus(response, 200);
+        long durationNanos = System.nanoTime() - startNanos;
         
-        long duration = calculateDuration(exchange);
-        String requestId = getRequestId(exchange);
-        Timer.Sample timerSample = getTimerSample(exchange);
-        
-        // 记录性能指标
-        if (timerSample != null) {
-            performanceMonitor.recordRequest(
-                timerSample,
-                request.getMethod().name(),
-                request.getPath().value(),
-                response.getStatusCode() != null ? response.getStatusCode().value() : 200
-            );
-        }
+        performanceMonitor.recordRequest(timerSample, route, exchange.getRequest().getMethod().name(), status);
+        latencyHistograms.record(route, status, durationNanos);
         
         // 记录响应大小（如果可用）
-        if (response.getHeaders().getContentLength() > 0) {
-            performanceMonitor.recordResponseSize(response.getHeaders().getContentLength());
+        long contentLength = response.getHeaders().getContentLength();
+        if (contentLength > 0) {
+            performanceMonitor.recordResponseSize(contentLength);
         }
         
-        System.out.println(String.format(
-            "请求完成: %s %s - %dms - %s - RequestId: %s",
-            request.getMethod(),
-            request.getPath(),
-            duration,
-            response.getStatusCode(),
-            requestId
-        ));
+        accessLog.record(exchange.getRequest(), requestId, route, status, durationNanos,
+                         Math.max(contentLength, 0), error != null ? "error" : "complete", error);
     }
     
-    /**
-     * 处理请求错误
-     */
-    private void handleRequestError(ServerWebExchange exchange, Throwable error) {
-        ServerHttpRequest request = exchange.getRequest();
-        
-        long duration = calculateDuration(exchange);
-        String requestId = getRequestId(exchange);
-        Timer.Sample timerSample = getTimerSample(exchange);
-        
-        // 记录性能指标（假设是500错误）
-        if (timerSample != null) {
-            performanceMonitor.recordRequest(
-                timerSample,
-                request.getMethod().name(),
-                request.getPath().value(),
-                500
-            );
+    private static String resolveRequestId(ServerHttpRequest request) {
+        String incoming = request.getHeaders().getFirst(REQUEST_ID_HEADER);
+        if (incoming != null && !incoming.isEmpty() && incoming.length() <= MAX_REQUEST_ID_LENGTH
+                && isToken(incoming)) {
+            return incoming;
         }
-        
-        System.err.println(String.format(
-            "请求异常: %s %s - %dms - RequestId: %s - Error: %s",
-            request.getMethod(),
-            request.getPath(),
-            duration,
-            requestId,
-            error.getMessage()
-        ));
+        return AccessLog.nextRequestId();
     }
     
     /**
-     * 记录请求开始日志
+     * 只接受字母、数字和 - _ . : 组成的请求ID，其他值换成新生成的ID
      */
-    private void logRequestStart(ServerHttpRequest request, String requestId) {
-        System.out.println(String.format(
-            "请求开始: %s %s - RequestId: %s - RemoteAddress: %s - UserAgent: %s",
-            request.getMethod(),
-            request.getURI(),
-            requestId,
-            getRemoteAddress(request),
-            getUserAgent(request)
-        ));
-    }
-    
-    /**
-     * 记录请求结束日志
-     */
-    private void logRequestEnd(ServerWebExchange exchange, String signalType) {
-        ServerHttpRequest request = exchange.getRequest();
-        long duration = calculateDuration(exchange);
-        String requestId = getRequestId(exchange);
-        
-        System.out.println(String.format(
-            "请求结束: %s %s - %dms - RequestId: %s - Signal: %s",
-            request.getMethod(),
-            request.getPath(),
-            duration,
-            requestId,
-            signalType
-        ));
-    }
-    
-    /**
-     * 计算请求持续时间
-     */
-    private long calculateDuration(ServerWebExchange exchange) {
-        Long startTime = (Long) exchange.getAttributes().get(START_TIME_ATTR);
-        return startTime != null ? System.currentTimeMillis() - startTime : 0;
-    }
-    
-    /**
-     * 获取请求ID
-     */
-    private String getRequestId(ServerWebExchange exchange) {
-        Object requestId = exchange.getAttributes().get(REQUEST_ID_ATTR);
-        return requestId != null ? requestId.toString() : "unknown";
-    }
-    
-    /**
-     * 获取计时器样本
-     */
-    private Timer.Sample getTimerSample(ServerWebExchange exchange) {
-        return (Timer.Sample) exchange.getAttributes().get(TIMER_SAMPLE_ATTR);
+    private static boolean isToken(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == ':';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
     }
     
-    /**
-     * 获取远程地址
-     */
-    private String getRemoteAddress(ServerHttpRequest request) {
-        String xForwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeaders().getFirst("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddress() != null ? 
-            request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
+    private static int getStatus(ServerHttpResponse response, int defaultStatus) {
+        return response.getStatusCode() != null ? response.getStatusCode().value() : defaultStatus;
     }
     
     /**
-     * 获取用户代理
+     * 获取匹配到的路由模板（函数式路由和注解控制器都会设置），用作指标标签而不是原始路径
      */
-    private String getUserAgent(ServerHttpRequest request) {
-        String userAgent = request.getHeaders().getFirst("User-Agent");
-        return userAgent != null ? userAgent : "unknown";
+    private static String getRoutePattern(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttributes().get(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof PathPattern pathPattern ? pathPattern.getPatternString() : null;
     }
 }
@@ -0,0 +1,79 @@
+package com.javalaabs.webflux.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 多行 INSERT 语句
+ * 按列定义为每一行生成带行号的命名参数（如 :email0, :email1），一批数据只需一次数据库往返
+ */
+final class MultiRowInsert<T> {
+    
+    private final String prefix;
+    private final String suffix;
+    private final List<Column<T>> columns;
+    
+    /**
+     * @param prefix  VALUES 之前的语句，如 "INSERT INTO t (a, b) VALUES "
+     * @param suffix  VALUES 之后的语句，如 ON DUPLICATE KEY UPDATE 子句，可为空字符串
+     * @param columns 与 prefix 中列顺序一致的列定义
+     */
+    MultiRowInsert(String prefix, String suffix, List<Column<T>> columns) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.columns = columns;
+    }
+    
+    static <T> Column<T> column(String name, Class<?> type, Function<T, Object> extractor) {
+        return new Column<>(name, type, extractor);
+    }
+    
+    /**
+     * 执行插入，返回受影响的行数
+     */
+    Mono<Long> execute(DatabaseClient databaseClient, List<T> rows) {
+        if (rows.isEmpty()) {
+            return Mono.just(0L);
+        }
+        
+        StringBuilder sql = new StringBuilder(prefix.length() + suffix.length() + rows.size() * columns.size() * 16)
+            .append(prefix);
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i > 0 ? ", (" : "(");
+            for (int c = 0; c < columns.size(); c++) {
+                sql.append(c > 0 ? ", :" : ":").append(columns.get(c).name).append(i);
+            }
+            sql.append(')');
+        }
+        sql.append(suffix);
+        
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < rows.size(); i++) {
+            T row = rows.get(i);
+            for (Column<T> column : columns) {
+                Object value = column.extractor.apply(row);
+                spec = value != null ?
+                    spec.bind(column.name + i, value) :
+                    spec.bindNull(column.name + i, column.type);
+            }
+        }
+        
+        return spec.fetch()
+                   .rowsUpdated();
+    }
+    
+    static final class Column<T> {
+        private final String name;
+        private final Class<?> type;
+        private final Function<T, Object> extractor;
+        
+        private Column(String name, Class<?> type, Function<T, Object> extractor) {
+            this.name = name;
+            this.type = type;
+            this.extractor = extractor;
+        }
+    }
+}
@@ -9,12 +9,13 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.time.LocalDate;
 
 /**
  * 用户活动响应式Repository接口
  */
 @Repository
-public interface ReactiveUserActivityRepository extends R2dbcRepository<UserActivity, String> {
+public interface ReactiveUserActivityRepository extends R2dbcRepository<UserActivity, String>, UserActivityBatchRepository {
     
     /**
      * 根据用户ID查找活动记录
@@ -67,9 +68,10 @@ public interface ReactiveUserActivityRepository extends R2dbcRepository<UserActi
                                                    @Param("offset") long offset);
     
     /**
-     * 查找热门活动类型（按数量统计）
+     * 查找热门活动类型（按数量统计，读取日汇总表）
      */
-    @Query("SELECT action, COUNT(*) as count FROM user_activities GROUP BY action ORDER BY count DESC LIMIT :limit")
+    @Query("SELECT action, SUM(activity_count) as count FROM user_activity_rollup_daily " +
+           "GROUP BY action ORDER BY count DESC LIMIT :limit")
     Flux<Object[]> findTopActionsByCount(@Param("limit") int limit);
     
     /**
@@ -114,6 +116,12 @@ public interface ReactiveUserActivityRepository extends R2dbcRepository<UserActi
     @Query("SELECT MAX(timestamp) FROM user_activities WHERE user_id = :userId")
     Mono<Instant> findLastActivityTime(@Param("userId") String userId);
     
+    /**
+     * 查找最早的活动时间（汇总回填的起点）
+     */
+    @Query("SELECT MIN(timestamp) FROM user_activities")
+    Mono<Instant> findEarliestActivityTime();
+    
     /**
      * 查找指定IP地址的活动记录
      */
@@ -121,14 +129,15 @@ public interface ReactiveUserActivityRepository extends R2dbcRepository<UserActi
     Flux<UserActivity> findByIpAddress(@Param("ipAddress") String ipAddress);
     
     /**
-     * 统计每日活动数量
+     * 统计每日活动数量（读取日汇总表）；startDate 是按汇总时区（webflux.activity-rollup.zone）划分的日期，
+     * 直接与 bucket_date 比较，不经过数据库会话时区换算
      */
-    @Query("SELECT DATE(timestamp) as activity_date, COUNT(*) as count " +
-           "FROM user_activities " +
-           "WHERE timestamp >= :startDate " +
-           "GROUP BY DATE(timestamp) " +
+    @Query("SELECT bucket_date as activity_date, SUM(activity_count) as count " +
+           "FROM user_activity_rollup_daily " +
+           "WHERE bucket_date >= :startDate " +
+           "GROUP BY bucket_date " +
            "ORDER BY activity_date DESC")
-    Flux<Object[]> getDailyActivityCounts(@Param("startDate") Instant startDate);
+    Flux<Object[]> getDailyActivityCounts(@Param("startDate") LocalDate startDate);
     
     /**
      * 查找用户会话（登录到登出之间的活动）
@@ -9,13 +9,14 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.Collection;
 
 /**
  * 用户响应式Repository接口
  * 基于R2DBC实现响应式数据库访问
  */
 @Repository
-public interface ReactiveUserRepository extends R2dbcRepository<User, String> {
+public interface ReactiveUserRepository extends R2dbcRepository<User, String>, UserBatchRepository {
     
     /**
      * 根据邮箱查找用户
@@ -27,6 +28,12 @@ public interface ReactiveUserRepository extends R2dbcRepository<User, String> {
      */
     Mono<Boolean> existsByEmail(String email);
     
+    /**
+     * 批量检查邮箱是否已存在，返回已被占用的邮箱
+     */
+    @Query("SELECT email FROM users WHERE email IN (:emails)")
+    Flux<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
     /**
      * 根据账户类型查找用户
      */
@@ -95,6 +102,77 @@ public interface ReactiveUserRepository extends R2dbcRepository<User, String> {
                                     @Param("limit") int limit, 
                                     @Param("offset") long offset);
     
+    /**
+     * 游标分页：第一页（按创建时间、ID降序）
+     */
+    @Query("SELECT * FROM users ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findUsersFirstPage(@Param("limit") int limit);
+    
+    /**
+     * 游标分页：游标之后的一页，通过 (create_time, id) 索引直接定位
+     */
+    @Query("SELECT * FROM users " +
+           "WHERE (create_time < :createTime OR (create_time = :createTime AND id < :id)) " +
+           "ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findUsersAfter(@Param("createTime") Instant createTime,
+                              @Param("id") String id,
+                              @Param("limit") int limit);
+    
+    /**
+     * 游标分页：活跃用户第一页
+     */
+    @Query("SELECT * FROM users WHERE is_active = true ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findActiveUsersFirstPage(@Param("limit") int limit);
+    
+    /**
+     * 游标分页：游标之后的活跃用户
+     */
+    @Query("SELECT * FROM users WHERE is_active = true " +
+           "AND (create_time < :createTime OR (create_time = :createTime AND id < :id)) " +
+           "ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findActiveUsersAfter(@Param("createTime") Instant createTime,
+                                    @Param("id") String id,
+                                    @Param("limit") int limit);
+    
+    /**
+     * 游标分页：指定账户类型第一页
+     */
+    @Query("SELECT * FROM users WHERE account_type = :accountType ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findByAccountTypeFirstPage(@Param("accountType") String accountType,
+                                          @Param("limit") int limit);
+    
+    /**
+     * 游标分页：游标之后的指定账户类型用户
+     */
+    @Query("SELECT * FROM users WHERE account_type = :accountType " +
+           "AND (create_time < :createTime OR (create_time = :createTime AND id < :id)) " +
+           "ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> findByAccountTypeAfter(@Param("accountType") String accountType,
+                                      @Param("createTime") Instant createTime,
+                                      @Param("id") String id,
+                                      @Param("limit") int limit);
+    
+    /**
+     * 游标分页：搜索第一页
+     */
+    @Query("SELECT * FROM users WHERE " +
+           "(name LIKE CONCAT('%', :search, '%') OR email LIKE CONCAT('%', :search, '%')) " +
+           "ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> searchUsersFirstPage(@Param("search") String search,
+                                    @Param("limit") int limit);
+    
+    /**
+     * 游标分页：游标之后的搜索结果
+     */
+    @Query("SELECT * FROM users WHERE " +
+           "(name LIKE CONCAT('%', :search, '%') OR email LIKE CONCAT('%', :search, '%')) " +
+           "AND (create_time < :createTime OR (create_time = :createTime AND id < :id)) " +
+           "ORDER BY create_time DESC, id DESC LIMIT :limit")
+    Flux<User> searchUsersAfter(@Param("search") String search,
+                                @Param("createTime") Instant createTime,
+                                @Param("id") String id,
+                                @Param("limit") int limit);
+    
     /**
      * 统计用户总数
      */
@@ -131,7 +209,7 @@ public interface ReactiveUserRepository extends R2dbcRepository<User, String> {
      * 根据ID批量查询用户
      */
     @Query("SELECT * FROM users WHERE id IN (:ids)")
-    Flux<User> findByIdIn(@Param("ids") Flux<String> ids);
+    Flux<User> findByIdIn(@Param("ids") Collection<String> ids);
     
     /**
      * 查找最近注册的用户
@@ -0,0 +1,26 @@
+package com.javalaabs.webflux.repository;
+
+import com.javalaabs.webflux.domain.entity.UserActivity;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 用户活动批量写入扩展接口
+ * 由 {@link ReactiveUserActivityRepository} 继承，实现类通过 DatabaseClient 生成多行 INSERT，
+ * 并在同一事务中维护按日与动作类型汇总的活动计数
+ */
+public interface UserActivityBatchRepository {
+    
+    /**
+     * 以一条多行 INSERT 写入一批活动记录，返回实际写入的行数
+     * 引用已删除用户的记录会被忽略，也不计入汇总，不影响同批其他记录
+     */
+    Mono<Long> insertAll(List<UserActivity> activities);
+    
+    /**
+     * 根据活动明细重新计算指定日期的日汇总（覆盖原有汇总），返回该日的活动总数
+     */
+    Mono<Long> rebuildRollups(LocalDate day);
+}
@@ -0,0 +1,152 @@
+package com.javalaabs.webflux.repository;
+
+import com.javalaabs.webflux.domain.entity.UserActivity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 用户活动批量写入实现
+ * 活动明细与日汇总在同一个事务中写入，汇总表按 (日期, 动作) 累加；
+ * 只累加实际写入的明细，被忽略的行（如用户已删除导致外键失败）不计入汇总
+ */
+class UserActivityBatchRepositoryImpl implements UserActivityBatchRepository {
+    
+    private static final String DAILY_PREFIX =
+        "INSERT INTO user_activity_rollup_daily (bucket_date, action, activity_count) VALUES ";
+    private static final String ADD_COUNT = " ON DUPLICATE KEY UPDATE activity_count = activity_count + VALUES(activity_count)";
+    private static final String REPLACE_COUNT = " ON DUPLICATE KEY UPDATE activity_count = VALUES(activity_count)";
+    
+    // 日期范围由应用按汇总时区换算成起止时间再绑定，不依赖数据库会话时区
+    private static final String COUNT_BY_ACTION =
+        "SELECT action, COUNT(*) AS activity_count " +
+        "FROM user_activities WHERE timestamp >= :from AND timestamp < :to " +
+        "GROUP BY action";
+    
+    private static final String FIND_INSERTED_IDS = "SELECT id FROM user_activities WHERE id IN (:ids)";
+    
+    private static final MultiRowInsert<UserActivity> INSERT_ACTIVITIES = new MultiRowInsert<>(
+        "INSERT IGNORE INTO user_activities (id, user_id, action, description, ip_address, user_agent, timestamp) VALUES ",
+        "",
+        List.of(
+            MultiRowInsert.column("id", String.class, UserActivity::getId),
+            MultiRowInsert.column("userId", String.class, UserActivity::getUserId),
+            MultiRowInsert.column("action", String.class, UserActivity::getAction),
+            MultiRowInsert.column("description", String.class, UserActivity::getDescription),
+            MultiRowInsert.column("ipAddress", String.class, UserActivity::getIpAddress),
+            MultiRowInsert.column("userAgent", String.class, UserActivity::getUserAgent),
+            MultiRowInsert.column("timestamp", Instant.class, UserActivity::getTimestamp)
+        ));
+    
+    private static final List<MultiRowInsert.Column<Map.Entry<RollupKey, Long>>> ROLLUP_COLUMNS = List.of(
+        MultiRowInsert.column("bucket", LocalDate.class, entry -> entry.getKey().bucket()),
+        MultiRowInsert.column("action", String.class, entry -> entry.getKey().action()),
+        MultiRowInsert.column("count", Long.class, Map.Entry::getValue)
+    );
+    
+    private static final MultiRowInsert<Map.Entry<RollupKey, Long>> ADD_DAILY =
+        new MultiRowInsert<>(DAILY_PREFIX, ADD_COUNT, ROLLUP_COLUMNS);
+    private static final MultiRowInsert<Map.Entry<RollupKey, Long>> REPLACE_DAILY =
+        new MultiRowInsert<>(DAILY_PREFIX, REPLACE_COUNT, ROLLUP_COLUMNS);
+    
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ZoneId rollupZone;
+    
+    UserActivityBatchRepositoryImpl(DatabaseClient databaseClient,
+                                    ReactiveTransactionManager transactionManager,
+                                    @Value("${webflux.activity-rollup.zone:UTC}") ZoneId rollupZone) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.rollupZone = rollupZone;
+    }
+    
+    @Override
+    public Mono<Long> insertAll(List<UserActivity> activities) {
+        if (activities.isEmpty()) {
+            return Mono.just(0L);
+        }
+        
+        return INSERT_ACTIVITIES.execute(databaseClient, activities)
+            .flatMap(rows -> insertedActivities(activities, rows)
+                .flatMap(inserted -> {
+                    Map<RollupKey, Long> daily = dailyCounts(inserted);
+                    return daily.isEmpty() ?
+                        Mono.just(rows) :
+                        ADD_DAILY.execute(databaseClient, new ArrayList<>(daily.entrySet())).thenReturn(rows);
+                }))
+            .as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * 全部写入时无需回查；有被忽略的行时在同一事务内回查实际写入的活动ID
+     */
+    private Mono<List<UserActivity>> insertedActivities(List<UserActivity> activities, long rows) {
+        if (rows == activities.size()) {
+            return Mono.just(activities);
+        }
+        if (rows == 0) {
+            return Mono.just(List.of());
+        }
+        
+        List<String> ids = activities.stream().map(UserActivity::getId).toList();
+        return databaseClient.sql(FIND_INSERTED_IDS)
+                             .bind("ids", ids)
+                             .map(row -> row.get("id", String.class))
+                             .all()
+                             .collect(Collectors.toSet())
+                             .map(inserted -> activities.stream()
+                                                        .filter(activity -> inserted.contains(activity.getId()))
+                                                        .toList());
+    }
+    
+    private Map<RollupKey, Long> dailyCounts(List<UserActivity> activities) {
+        Map<RollupKey, Long> daily = new LinkedHashMap<>();
+        for (UserActivity activity : activities) {
+            Instant timestamp = activity.getTimestamp();
+            daily.merge(new RollupKey(LocalDate.ofInstant(timestamp, rollupZone), activity.getAction()), 1L, Long::sum);
+        }
+        return daily;
+    }
+    
+    @Override
+    public Mono<Long> rebuildRollups(LocalDate day) {
+        Instant from = day.atStartOfDay(rollupZone).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(rollupZone).toInstant();
+        
+        Mono<Map<RollupKey, Long>> dailyCounts = databaseClient.sql(COUNT_BY_ACTION)
+            .bind("from", from)
+            .bind("to", to)
+            .map(row -> Map.entry(new RollupKey(day, row.get("action", String.class)),
+                                  row.get("activity_count", Number.class).longValue()))
+            .all()
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+        
+        return dailyCounts.flatMap(daily -> {
+            long total = daily.values().stream().mapToLong(Long::longValue).sum();
+            
+            return databaseClient.sql("DELETE FROM user_activity_rollup_daily WHERE bucket_date = :day")
+                                 .bind("day", day)
+                                 .then()
+                                 .then(REPLACE_DAILY.execute(databaseClient, new ArrayList<>(daily.entrySet())))
+                                 .thenReturn(total);
+        }).as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * 汇总键：日期 + 动作类型
+     */
+    private record RollupKey(LocalDate bucket, String action) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.javalaabs.webflux.repository;
+
+import com.javalaabs.webflux.domain.entity.User;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 用户批量写入扩展接口
+ * 由 {@link ReactiveUserRepository} 继承，实现类通过 DatabaseClient 生成多行 INSERT
+ */
+public interface UserBatchRepository {
+    
+    /**
+     * 以一条多行 INSERT 写入一批用户，返回实际写入的行数
+     * 邮箱已被占用的行会被忽略（INSERT IGNORE），调用方需按ID核对哪些行写入成功
+     */
+    Mono<Long> insertAll(List<User> users);
+}
@@ -0,0 +1,39 @@
+package com.javalaabs.webflux.repository;
+
+import com.javalaabs.webflux.domain.entity.User;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 用户批量写入实现
+ */
+class UserBatchRepositoryImpl implements UserBatchRepository {
+    
+    private static final MultiRowInsert<User> INSERT_USERS = new MultiRowInsert<>(
+        "INSERT IGNORE INTO users (id, name, email, avatar_url, account_type, create_time, update_time, is_active) VALUES ",
+        "",
+        List.of(
+            MultiRowInsert.column("id", String.class, User::getId),
+            MultiRowInsert.column("name", String.class, User::getName),
+            MultiRowInsert.column("email", String.class, User::getEmail),
+            MultiRowInsert.column("avatarUrl", String.class, User::getAvatarUrl),
+            MultiRowInsert.column("accountType", String.class, User::getAccountType),
+            MultiRowInsert.column("createTime", Instant.class, User::getCreateTime),
+            MultiRowInsert.column("updateTime", Instant.class, User::getUpdateTime),
+            MultiRowInsert.column("isActive", Boolean.class, User::getIsActive)
+        ));
+    
+    private final DatabaseClient databaseClient;
+    
+    UserBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+    
+    @Override
+    public Mono<Long> insertAll(List<User> users) {
+        return INSERT_USERS.execute(databaseClient, users);
+    }
+}
@@ -0,0 +1,375 @@
+package com.javalaabs.webflux.search;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.entity.User;
+import com.javalaabs.webflux.domain.event.UserChangedEvent;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import com.javalaabs.webflux.repository.ReactiveUserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户内存搜索索引
+ * 对用户名和邮箱建立三元组（trigram）倒排索引，子串搜索在内存中求交集得到候选ID，
+ * 再由调用方按ID批量回表，避免 LIKE '%q%' 的全表扫描。
+ * 启动时流式加载全部用户构建索引，之后通过 {@link UserChangedEvent} 增量维护；
+ * 后台定期与数据库对账，修正其他节点的写入和丢失的事件带来的偏差
+ */
+@Component
+public class UserSearchIndex {
+    
+    private static final int GRAM_LENGTH = 3;
+    
+    private static final Comparator<Document> NEWEST_FIRST =
+        Comparator.comparing((Document document) -> document.createTime,
+                             Comparator.nullsLast(Comparator.reverseOrder()))
+                  .thenComparing(document -> document.id, Comparator.reverseOrder());
+    
+    private final ReactiveUserRepository userRepository;
+    private final boolean enabled;
+    private final Duration reconcileInterval;
+    
+    private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+    
+    /**
+     * 对账期间由事件变更过的用户，防止全量加载用旧数据覆盖事件带来的更新或把已删除的用户写回索引
+     */
+    private final Set<String> changedDuringBuild = ConcurrentHashMap.newKeySet();
+    
+    private volatile boolean ready;
+    private volatile boolean building;
+    private volatile Disposable buildSubscription;
+    
+    public UserSearchIndex(ReactiveUserRepository userRepository,
+                           PerformanceMonitor performanceMonitor,
+                           @Value("${webflux.search.index.enabled:true}") boolean enabled,
+                           @Value("${webflux.search.index.reconcile-interval:5m}") Duration reconcileInterval) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.reconcileInterval = reconcileInterval;
+        
+        performanceMonitor.registerSearchIndexMetrics(this);
+    }
+    
+    /**
+     * 应用就绪后异步流式构建索引，并按固定间隔与数据库对账；首次构建完成前搜索回退到数据库，
+     * 上一次对账未完成时跳过本轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        
+        buildSubscription = Flux.interval(Duration.ZERO, reconcileInterval)
+                                .onBackpressureDrop()
+                                .concatMap(tick -> reconcile()
+                                    .onErrorResume(error -> {
+                                        System.err.println(ready ?
+                                            "用户搜索索引对账失败: " + error.getMessage() :
+                                            "用户搜索索引构建失败，搜索将使用数据库: " + error.getMessage());
+                                        return Mono.empty();
+                                    }), 1)
+                                .subscribe();
+    }
+    
+    /**
+     * 流式加载全部用户：新增或变化的用户写入索引，数据库中已不存在的用户从索引移除；
+     * 加载期间被事件变更过的用户以事件为准，不做修改
+     */
+    Mono<Long> reconcile() {
+        long start = System.currentTimeMillis();
+        Set<String> loaded = new HashSet<>();
+        return Mono.defer(() -> {
+            changedDuringBuild.clear();
+            building = true;
+            return userRepository.findAll()
+                                 .doOnNext(user -> {
+                                     loaded.add(user.getId());
+                                     indexLoaded(user);
+                                 })
+                                 .count();
+        }).doOnNext(count -> {
+            int removed = removeMissing(loaded);
+            if (!ready) {
+                ready = true;
+                System.out.println("用户搜索索引构建完成: " + count + " 个用户, 耗时 " +
+                                   (System.currentTimeMillis() - start) + "ms");
+            } else if (removed > 0) {
+                System.out.println("用户搜索索引对账完成: 移除 " + removed + " 个已不存在的用户");
+            }
+        }).doFinally(signal -> {
+            building = false;
+            changedDuringBuild.clear();
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        Disposable subscription = buildSubscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+    
+    /**
+     * 根据用户变更事件增量维护索引
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        
+        if (building && event.getUserId() != null) {
+            changedDuringBuild.add(event.getUserId());
+        }
+        if (event.getChangeType() == UserChangedEvent.ChangeType.DELETED) {
+            remove(event.getUserId());
+        } else {
+            upsert(toDocument(event.getAfter()));
+        }
+    }
+    
+    /**
+     * 搜索用户名或邮箱包含关键字的用户，按创建时间、ID降序返回指定页的用户ID；
+     * 索引尚未就绪时返回空，由调用方回退到数据库查询
+     */
+    public Optional<List<String>> search(String query, int page, int size) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        
+        String needle = normalize(query);
+        if (needle.isEmpty() || size <= 0 || page < 0) {
+            return Optional.of(List.of());
+        }
+        
+        List<Document> matches = needle.length() < GRAM_LENGTH ?
+            scanAll(needle) :
+            intersect(needle);
+        
+        long offset = (long) page * size;
+        return Optional.of(matches.stream()
+                                  .sorted(NEWEST_FIRST)
+                                  .skip(offset)
+                                  .limit(size)
+                                  .map(document -> document.id)
+                                  .toList());
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int getDocumentCount() {
+        return documents.size();
+    }
+    
+    public int getTermCount() {
+        return postings.size();
+    }
+    
+    /**
+     * 关键字不足一个三元组时（常见于中文姓名）直接扫描内存文档
+     */
+    private List<Document> scanAll(String needle) {
+        List<Document> matches = new ArrayList<>();
+        for (Document document : documents.values()) {
+            if (document.matches(needle)) {
+                matches.add(document);
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * 从最短的倒排列表开始求交集，再逐个校验子串（三元组全部命中不代表连续出现）
+     */
+    private List<Document> intersect(String needle) {
+        List<Set<String>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<String> posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        
+        List<Document> matches = new ArrayList<>();
+        Set<String> smallest = lists.get(0);
+        candidates:
+        for (String id : smallest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    continue candidates;
+                }
+            }
+            Document document = documents.get(id);
+            if (document != null && document.matches(needle)) {
+                matches.add(document);
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * 全量加载的记录与索引不一致时覆盖索引，加载期间事件带来的变更始终优先
+     */
+    private void indexLoaded(User user) {
+        Document document = new Document(user.getId(), user.getName(), user.getEmail(), user.getCreateTime());
+        documents.compute(document.id, (id, current) -> {
+            if (changedDuringBuild.contains(id) || (current != null && current.sameAs(document))) {
+                return current;
+            }
+            if (current != null) {
+                removePostings(current, document.grams);
+            }
+            addPostings(document);
+            return document;
+        });
+    }
+    
+    /**
+     * 移除本轮未加载到且加载期间未被事件变更的用户，返回移除的数量
+     */
+    private int removeMissing(Set<String> loaded) {
+        int removed = 0;
+        for (String userId : documents.keySet()) {
+            if (loaded.contains(userId)) {
+                continue;
+            }
+            Document remaining = documents.computeIfPresent(userId, (id, current) -> {
+                if (changedDuringBuild.contains(id)) {
+                    return current;
+                }
+                removePostings(current, Set.of());
+                return null;
+            });
+            if (remaining == null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    private void upsert(Document document) {
+        if (document == null) {
+            return;
+        }
+        documents.compute(document.id, (id, current) -> {
+            if (current != null) {
+                removePostings(current, document.grams);
+            }
+            addPostings(document);
+            return document;
+        });
+    }
+    
+    private void remove(String userId) {
+        if (userId == null) {
+            return;
+        }
+        documents.computeIfPresent(userId, (id, current) -> {
+            removePostings(current, Set.of());
+            return null;
+        });
+    }
+    
+    private void addPostings(Document document) {
+        for (String gram : document.grams) {
+            postings.compute(gram, (key, ids) -> {
+                Set<String> target = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                target.add(document.id);
+                return target;
+            });
+        }
+    }
+    
+    /**
+     * 移除旧文档中不再出现的三元组，空的倒排列表一并删除
+     */
+    private void removePostings(Document document, Set<String> retained) {
+        for (String gram : document.grams) {
+            if (retained.contains(gram)) {
+                continue;
+            }
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(document.id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+    
+    private static Document toDocument(UserDTO user) {
+        if (user == null || user.getId() == null) {
+            return null;
+        }
+        return new Document(user.getId(), user.getName(), user.getEmail(), user.getCreateTime());
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+    
+    /**
+     * 索引文档：只保存搜索与排序所需的字段
+     */
+    private static final class Document {
+        private final String id;
+        private final String name;
+        private final String email;
+        private final Instant createTime;
+        private final Set<String> grams;
+        
+        private Document(String id, String name, String email, Instant createTime) {
+            this.id = id;
+            this.name = normalize(name);
+            this.email = normalize(email);
+            this.createTime = createTime;
+            
+            // 名称和邮箱分别切分，避免产生跨字段的三元组
+            Set<String> all = new HashSet<>(grams(this.name));
+            all.addAll(grams(this.email));
+            this.grams = all;
+        }
+        
+        private boolean matches(String needle) {
+            return name.contains(needle) || email.contains(needle);
+        }
+        
+        private boolean sameAs(Document other) {
+            return name.equals(other.name) && email.equals(other.email) &&
+                   Objects.equals(createTime, other.createTime);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.javalaabs.webflux.service;
+
+import com.javalaabs.webflux.repository.ReactiveUserActivityRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 活动汇总回填任务
+ * 按天从最早的活动记录回填到昨天，每天一个事务重新计算日汇总，可重复执行；
+ * 当天仍在持续写入，由活动写入器增量维护，不参与回填。
+ * 另按固定间隔重新计算前一天的日汇总，修正跨日晚到的写入等增量维护的偏差
+ */
+@Component
+public class ActivityRollupBackfill {
+    
+    private final ReactiveUserActivityRepository activityRepository;
+    private final ZoneId rollupZone;
+    private final boolean runOnStartup;
+    private final Duration reconcileInterval;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private volatile Disposable reconcileSubscription;
+    
+    public ActivityRollupBackfill(ReactiveUserActivityRepository activityRepository,
+                                  @Value("${webflux.activity-rollup.zone:UTC}") ZoneId rollupZone,
+                                  @Value("${webflux.activity-rollup.backfill-on-startup:false}") boolean runOnStartup,
+                                  @Value("${webflux.activity-rollup.reconcile-interval:1h}") Duration reconcileInterval) {
+        this.activityRepository = activityRepository;
+        this.rollupZone = rollupZone;
+        this.runOnStartup = runOnStartup;
+        this.reconcileInterval = reconcileInterval;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (runOnStartup) {
+            backfill().subscribe(
+                total -> { },
+                error -> System.err.println("活动汇总回填失败: " + error.getMessage())
+            );
+        }
+    }
+    
+    /**
+     * 应用就绪后按固定间隔重新计算前一天的日汇总；上一次未完成时跳过本轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconciliation() {
+        reconcileSubscription = Flux.interval(Duration.ZERO, reconcileInterval)
+                                    .onBackpressureDrop()
+                                    .concatMap(tick -> rebuildPreviousDay()
+                                        .onErrorResume(error -> {
+                                            System.err.println("前一天活动汇总重算失败: " + error.getMessage());
+                                            return Mono.empty();
+                                        }), 1)
+                                    .subscribe();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        Disposable subscription = reconcileSubscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+    
+    /**
+     * 重新计算前一天的日汇总，返回该日的活动总数
+     */
+    public Mono<Long> rebuildPreviousDay() {
+        return Mono.defer(() -> activityRepository.rebuildRollups(LocalDate.now(rollupZone).minusDays(1)));
+    }
+    
+    /**
+     * 执行回填，返回回填的活动总数；已有回填在执行时直接返回 0
+     */
+    public Mono<Long> backfill() {
+        return Mono.defer(() -> {
+            if (!running.compareAndSet(false, true)) {
+                System.out.println("活动汇总回填已在执行中，忽略本次请求");
+                return Mono.just(0L);
+            }
+            
+            long start = System.currentTimeMillis();
+            LocalDate yesterday = LocalDate.now(rollupZone).minusDays(1);
+            
+            return activityRepository.findEarliestActivityTime()
+                .flatMapMany(earliest -> {
+                    LocalDate first = LocalDate.ofInstant(earliest, rollupZone);
+                    return Flux.fromStream(first.datesUntil(yesterday.plusDays(1)));
+                })
+                .concatMap(day -> activityRepository.rebuildRollups(day)
+                                                    .doOnNext(count -> System.out.println(
+                                                        "活动汇总回填 " + day + ": " + count + " 条")))
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> System.out.println("活动汇总回填完成: " + total + " 条, 耗时 " +
+                                                      (System.currentTimeMillis() - start) + "ms"))
+                .doFinally(signal -> running.set(false));
+        });
+    }
+}
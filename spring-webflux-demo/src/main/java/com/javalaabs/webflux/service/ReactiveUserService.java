@@ -1,32 +1,64 @@
 package com.javalaabs.webflux.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javalaabs.webflux.cache.ProbabilisticEarlyRefresh;
+import com.javalaabs.webflux.cache.SingleFlight;
+import com.javalaabs.webflux.cache.UserNearCache;
+import com.javalaabs.webflux.domain.dto.BulkCreateResult;
 import com.javalaabs.webflux.domain.dto.CreateUserRequest;
+import com.javalaabs.webflux.domain.dto.CursorPage;
 import com.javalaabs.webflux.domain.dto.UpdateUserRequest;
 import com.javalaabs.webflux.domain.dto.UserActivityDTO;
+import com.javalaabs.webflux.domain.dto.UserCursor;
 import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.dto.UserVersion;
 import com.javalaabs.webflux.domain.entity.User;
 import com.javalaabs.webflux.domain.entity.UserActivity;
+import com.javalaabs.webflux.domain.event.UserChangedEvent;
 import com.javalaabs.webflux.domain.event.UserCreatedEvent;
 import com.javalaabs.webflux.domain.event.UserUpdateEvent;
 import com.javalaabs.webflux.exception.DuplicateEmailException;
 import com.javalaabs.webflux.exception.UserNotFoundException;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
 import com.javalaabs.webflux.repository.ReactiveUserActivityRepository;
 import com.javalaabs.webflux.repository.ReactiveUserRepository;
+import com.javalaabs.webflux.search.UserSearchIndex;
+import com.javalaabs.webflux.storage.AvatarStorage;
+import com.javalaabs.webflux.streaming.ClusterEventBus;
+import com.javalaabs.webflux.streaming.EventHub;
+import com.javalaabs.webflux.streaming.ReplayBuffer;
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import com.javalaabs.webflux.streaming.SequencedEvents;
+import com.javalaabs.webflux.streaming.SlowConsumerGuard;
+import com.javalaabs.webflux.streaming.SlowConsumerPolicy;
+import com.javalaabs.webflux.streaming.UserUpdateRouter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
-import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 响应式用户服务实现类
@@ -35,78 +67,296 @@ import java.util.UUID;
 @Service
 public class ReactiveUserService {
     
+    private static final String USER_CACHE_PREFIX = "user:";
+    private static final Duration USER_CACHE_TTL = Duration.ofMinutes(30);
+    private static final String ACTIVITY_TOPIC = "user-activities";
+    
     private final ReactiveUserRepository userRepository;
     private final ReactiveUserActivityRepository activityRepository;
     private final ReactiveRedisTemplate<String, Object> redisTemplate;
     private final ApplicationEventPublisher eventPublisher;
+    private final UserNearCache userNearCache;
+    private final UserSearchIndex searchIndex;
+    private final UserActivityWriter activityWriter;
+    private final UserStatistics userStatistics;
+    private final Validator validator;
+    private final UserUpdateRouter updateRouter;
+    private final ClusterEventBus eventBus;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final AvatarStorage avatarStorage;
+    private final ObjectMapper objectMapper;
+    
+    // 缓存未命中时的请求合并与提前刷新
+    private final SingleFlight<String, UserDTO> userLoadFlight;
+    private final ProbabilisticEarlyRefresh earlyRefresh;
+    
+    // 批量加载窗口
+    private final int batchLoadMaxSize;
+    private final Duration batchLoadMaxWait;
+    
+    // 批量创建分块大小
+    private final int bulkCreateChunkSize;
+    
+    // 导出每页行数
+    private final int exportPageSize;
     
-    // 用于实时事件流的Sink
-    private final Sinks.Many<UserUpdateEvent> userUpdateSink;
-    private final Sinks.Many<UserActivityDTO> activitySink;
+    // 用于实时事件流的Sink（用户更新事件由 UserUpdateRouter 按用户路由）
+    private final EventHub<UserActivityDTO, Sequenced<UserActivityDTO>> activityHub;
+    
+    // 最近的活动事件，供 SSE 断线重连补发
+    private final ReplayBuffer<UserActivityDTO> activityReplay;
     
     public ReactiveUserService(ReactiveUserRepository userRepository,
                              ReactiveUserActivityRepository activityRepository,
                              ApplicationEventPublisher eventPublisher,
-                             @Autowired(required = false) ReactiveRedisTemplate<String, Object> redisTemplate) {
+                             UserNearCache userNearCache,
+                             UserSearchIndex searchIndex,
+                             UserActivityWriter activityWriter,
+                             UserStatistics userStatistics,
+                             Validator validator,
+                             UserUpdateRouter updateRouter,
+                             ClusterEventBus eventBus,
+                             SlowConsumerGuard slowConsumerGuard,
+                             AvatarStorage avatarStorage,
+                             ObjectMapper objectMapper,
+                             PerformanceMonitor performanceMonitor,
+                             @Autowired(required = false) ReactiveRedisTemplate<String, Object> redisTemplate,
+                             @Value("${webflux.cache.user.early-refresh.enabled:false}") boolean earlyRefreshEnabled,
+                             @Value("${webflux.cache.user.early-refresh.beta:1.0}") double earlyRefreshBeta,
+                             @Value("${webflux.batch-loader.max-batch-size:500}") int batchLoadMaxSize,
+                             @Value("${webflux.batch-loader.max-wait:10ms}") Duration batchLoadMaxWait,
+                             @Value("${webflux.bulk-create.chunk-size:500}") int bulkCreateChunkSize,
+                             @Value("${webflux.export.page-size:1000}") int exportPageSize,
+                             @Value("${webflux.streaming.replay-buffer-size:1024}") int replayBufferSize,
+                             @Value("${webflux.streaming.hub-capacity:10000}") int hubCapacity) {
         this.userRepository = userRepository;
         this.activityRepository = activityRepository;
         this.redisTemplate = redisTemplate;
         this.eventPublisher = eventPublisher;
+        this.userNearCache = userNearCache;
+        this.searchIndex = searchIndex;
+        this.activityWriter = activityWriter;
+        this.userStatistics = userStatistics;
+        this.validator = validator;
+        this.updateRouter = updateRouter;
+        this.eventBus = eventBus;
+        this.slowConsumerGuard = slowConsumerGuard;
+        this.avatarStorage = avatarStorage;
+        this.objectMapper = objectMapper;
+        this.userLoadFlight = new SingleFlight<>();
+        this.earlyRefresh = new ProbabilisticEarlyRefresh(earlyRefreshEnabled, earlyRefreshBeta);
+        performanceMonitor.registerSingleFlightMetrics(UserNearCache.CACHE_NAME, userLoadFlight, earlyRefresh);
+        this.batchLoadMaxSize = batchLoadMaxSize;
+        this.batchLoadMaxWait = batchLoadMaxWait;
+        this.bulkCreateChunkSize = bulkCreateChunkSize;
+        this.exportPageSize = exportPageSize;
         
         // 初始化实时事件流
-        this.userUpdateSink = Sinks.many().multicast().onBackpressureBuffer();
-        this.activitySink = Sinks.many().multicast().onBackpressureBuffer();
+        // 序号在投递循环内分配，与投递一起串行，订阅者收到的事件 id 不会乱序
+        this.activityReplay = new ReplayBuffer<>(replayBufferSize);
+        this.activityHub = new EventHub<>(ACTIVITY_TOPIC, hubCapacity, activityReplay::append);
+        performanceMonitor.registerEventHubMetrics(activityHub);
+        eventBus.register(ACTIVITY_TOPIC, UserActivityDTO.class, this::emitActivity);
     }
     
     /**
-     * 根据ID查找用户（支持缓存）
+     * 根据ID查找用户（近端缓存 -> Redis -> 数据库）
      */
     public Mono<UserDTO> findById(String id) {
-        String cacheKey = "user:" + id;
+        // 近端缓存命中时无需任何网络往返
+        UserDTO nearCached = userNearCache.get(id);
+        if (nearCached != null) {
+            return Mono.just(nearCached)
+                      .doOnNext(user -> recordActivity(user.getId(), "VIEW_PROFILE", "查看用户资料"));
+        }
         
         // 如果Redis可用，使用缓存；否则直接查询数据库
         if (redisTemplate != null) {
-            return redisTemplate.opsForValue().get(cacheKey)
-                               .cast(UserDTO.class)
-                               .switchIfEmpty(
-                                   userRepository.findById(id)
-                                               .map(this::convertToDTO)
-                                               .flatMap(userDTO -> 
-                                                   redisTemplate.opsForValue()
-                                                              .set(cacheKey, userDTO, Duration.ofMinutes(30))
-                                                              .thenReturn(userDTO)
-                                               )
-                                               .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
-                               )
-                               .doOnNext(user -> logActivity(user.getId(), "VIEW_PROFILE", "查看用户资料"));
+            return readCachedUser(id)
+                               .switchIfEmpty(loadUser(id))
+                               .doOnNext(userNearCache::put)
+                               .doOnNext(user -> recordActivity(user.getId(), "VIEW_PROFILE", "查看用户资料"));
         } else {
-            return userRepository.findById(id)
-                               .map(this::convertToDTO)
-                               .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
-                               .doOnNext(user -> logActivity(user.getId(), "VIEW_PROFILE", "查看用户资料"));
+            return loadUser(id)
+                               .doOnNext(userNearCache::put)
+                               .doOnNext(user -> recordActivity(user.getId(), "VIEW_PROFILE", "查看用户资料"));
         }
     }
     
+    /**
+     * 查找已缓存的用户版本戳，只读内存，未缓存时返回 null
+     */
+    public UserVersion findVersion(String id) {
+        return userNearCache.getVersion(id);
+    }
+    
+    /**
+     * 创建请求级批量加载器
+     */
+    public UserBatchLoader newBatchLoader() {
+        return new UserBatchLoader(this::findByIds, batchLoadMaxSize, batchLoadMaxWait);
+    }
+    
+    /**
+     * 批量查询用户：近端缓存 -> 一次 Redis MGET -> 一次 SELECT ... WHERE id IN (...)
+     * 返回按ID索引的结果，不存在的用户不在结果中
+     */
+    public Mono<Map<String, UserDTO>> findByIds(Collection<String> ids) {
+        Map<String, UserDTO> resolved = new HashMap<>(ids.size() * 2);
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            UserDTO nearCached = userNearCache.get(id);
+            if (nearCached != null) {
+                resolved.put(id, nearCached);
+            } else {
+                misses.add(id);
+            }
+        }
+        
+        if (misses.isEmpty()) {
+            return Mono.just(resolved);
+        }
+        
+        Mono<List<String>> databaseMisses = redisTemplate == null ?
+            Mono.just(misses) :
+            redisTemplate.opsForValue()
+                         .multiGet(misses.stream().map(id -> USER_CACHE_PREFIX + id).toList())
+                         .map(values -> {
+                             List<String> remaining = new ArrayList<>();
+                             for (int i = 0; i < misses.size(); i++) {
+                                 Object value = i < values.size() ? values.get(i) : null;
+                                 if (value != null) {
+                                     UserDTO user = toUserDTO(value);
+                                     resolved.put(misses.get(i), user);
+                                     userNearCache.put(user);
+                                 } else {
+                                     remaining.add(misses.get(i));
+                                 }
+                             }
+                             return remaining;
+                         });
+        
+        return databaseMisses.flatMap(remaining -> {
+            if (remaining.isEmpty()) {
+                return Mono.just(resolved);
+            }
+            return userRepository.findByIdIn(remaining)
+                                 .map(this::convertToDTO)
+                                 .collectList()
+                                 .map(loaded -> {
+                                     for (UserDTO user : loaded) {
+                                         resolved.put(user.getId(), user);
+                                         userNearCache.put(user);
+                                     }
+                                     backfillRedis(loaded);
+                                     return resolved;
+                                 });
+        });
+    }
+    
     /**
      * 分页查询用户
      */
     public Flux<UserDTO> findUsers(int page, int size, String search) {
-        long offset = (long) page * size;
-        
-        Flux<User> userFlux;
         if (search != null && !search.trim().isEmpty()) {
-            userFlux = userRepository.searchUsersWithPaging(search.trim(), size, offset);
-        } else {
-            userFlux = userRepository.findUsersWithPaging(size, offset);
+            return searchUsers(search, page, size);
         }
         
-        return userFlux
+        long offset = (long) page * size;
+        return userRepository.findUsersWithPaging(size, offset)
             .map(this::convertToDTO)
             .doOnNext(user -> System.out.println("查询到用户: " + user.getName()))
             .onErrorContinue((error, user) -> 
                 System.err.println("处理用户数据出错: " + error.getMessage()));
     }
     
+    /**
+     * 按名称或邮箱搜索用户
+     * 优先由内存三元组索引解析出本页的用户ID，再一次性批量回表并保持索引给出的顺序；
+     * 索引尚未构建完成时回退到数据库模糊查询
+     */
+    public Flux<UserDTO> searchUsers(String query, int page, int size) {
+        String search = query.trim();
+        return Mono.fromSupplier(() -> searchIndex.search(search, page, size))
+                   .flatMapMany(ids -> ids.isPresent() ?
+                       hydrateInOrder(ids.get()) :
+                       userRepository.searchUsersWithPaging(search, size, (long) page * size)
+                                     .map(this::convertToDTO));
+    }
+    
+    private Flux<UserDTO> hydrateInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return findByIds(ids).flatMapMany(resolved -> Flux.fromIterable(ids)
+                                                          .mapNotNull(resolved::get));
+    }
+    
+    /**
+     * 游标分页查询用户（可按搜索词、账户类型或活跃状态过滤）
+     * 游标为上一页最后一条记录的 (create_time, id)，每页查询都是一次索引定位，与翻页深度无关
+     */
+    public Mono<CursorPage<UserDTO>> findUsers(String cursorToken, int size, String search,
+                                               String accountType, boolean activeOnly) {
+        return Mono.defer(() -> {
+            UserCursor cursor = UserCursor.decode(cursorToken);
+            // 多取一条用于判断是否还有下一页
+            return fetchUserPage(cursor, size + 1, search, accountType, activeOnly)
+                           .map(this::convertToDTO)
+                           .collectList()
+                           .map(users -> {
+                               boolean hasMore = users.size() > size;
+                               List<UserDTO> items = hasMore ? users.subList(0, size) : users;
+                               String nextCursor = hasMore ?
+                                   UserCursor.after(items.get(items.size() - 1)).encode() : null;
+                               return new CursorPage<>(items, nextCursor, hasMore);
+                           });
+        });
+    }
+    
+    /**
+     * 导出全部用户（可按搜索词、账户类型或活跃状态过滤）
+     * 沿 (create_time, id) 游标逐页读取，下游消费完当前页后才查询下一页，
+     * 内存中最多保留一到两页，导出任意规模的数据都不会堆积
+     */
+    public Flux<List<UserDTO>> exportUserPages(String search, String accountType, boolean activeOnly) {
+        return fetchExportPage(null, search, accountType, activeOnly)
+            .expand(page -> page.size() < exportPageSize ?
+                Mono.empty() :
+                fetchExportPage(UserCursor.after(page.get(page.size() - 1)), search, accountType, activeOnly));
+    }
+    
+    private Mono<List<UserDTO>> fetchExportPage(UserCursor cursor, String search, String accountType, boolean activeOnly) {
+        return fetchUserPage(cursor, exportPageSize, search, accountType, activeOnly)
+            .map(this::convertToDTO)
+            .collectList()
+            .filter(page -> !page.isEmpty());
+    }
+    
+    /**
+     * 按过滤条件选择对应的游标查询，cursor 为空时返回第一页
+     */
+    private Flux<User> fetchUserPage(UserCursor cursor, int limit, String search, String accountType, boolean activeOnly) {
+        if (search != null && !search.trim().isEmpty()) {
+            return cursor == null ?
+                userRepository.searchUsersFirstPage(search.trim(), limit) :
+                userRepository.searchUsersAfter(search.trim(), cursor.getCreateTime(), cursor.getId(), limit);
+        }
+        if (accountType != null && !accountType.isBlank()) {
+            return cursor == null ?
+                userRepository.findByAccountTypeFirstPage(accountType, limit) :
+                userRepository.findByAccountTypeAfter(accountType, cursor.getCreateTime(), cursor.getId(), limit);
+        }
+        if (activeOnly) {
+            return cursor == null ?
+                userRepository.findActiveUsersFirstPage(limit) :
+                userRepository.findActiveUsersAfter(cursor.getCreateTime(), cursor.getId(), limit);
+        }
+        return cursor == null ?
+            userRepository.findUsersFirstPage(limit) :
+            userRepository.findUsersAfter(cursor.getCreateTime(), cursor.getId(), limit);
+    }
+    
     /**
      * 创建用户（带事务）
      */
@@ -129,11 +379,10 @@ public class ReactiveUserService {
                            })
                            .map(this::convertToDTO)
                            .flatMap(userDTO -> {
-                               // 发布用户创建事件
-                               eventPublisher.publishEvent(new UserCreatedEvent(userDTO.getId(), userDTO.getEmail()));
-                               
-                               // 记录活动
-                               return logActivity(userDTO.getId(), "CREATE_USER", "用户注册")
+                               // 事务提交后发布用户创建事件，并记录活动
+                               return publishAfterCommit(new UserCreatedEvent(userDTO.getId(), userDTO.getEmail()),
+                                                         UserChangedEvent.created(userDTO))
+                                   .then(logActivity(userDTO.getId(), "CREATE_USER", "用户注册"))
                                    .thenReturn(userDTO);
                            })
                            .flatMap(userDTO -> {
@@ -143,44 +392,136 @@ public class ReactiveUserService {
                                    .eventType(UserUpdateEvent.EventTypes.USER_CREATED)
                                    .build();
                                
-                               userUpdateSink.tryEmitNext(updateEvent);
+                               updateRouter.publish(updateEvent);
                                return Mono.just(userDTO);
                            })
                            .doOnNext(user -> System.out.println("创建用户成功: " + user.getName()));
     }
     
     /**
-     * 批量创建用户
+     * 批量创建用户（分块集合操作）
+     * 每块只做一次邮箱存在性查询、一次多行 INSERT 和一次活动批量写入，
+     * 并为每个请求条目返回创建结果（CREATED / DUPLICATE / FAILED）
      */
-    @Transactional
-    public Flux<UserDTO> createUsers(List<CreateUserRequest> requests) {
-        return Flux.fromIterable(requests)
-                  .map(request -> {
-                      request.normalizeEmail();
-                      request.normalizeName();
-                      return request;
-                  })
-                  .flatMap(request -> 
-                      userRepository.existsByEmail(request.getEmail())
-                                   .flatMap(exists -> {
-                                       if (exists) {
-                                           return Mono.empty(); // 跳过已存在的邮箱
-                                       }
-                                       
-                                       User user = convertToEntity(request);
-                                       user.setId(UUID.randomUUID().toString());
-                                       return userRepository.save(user);
-                                   })
-                  )
-                  .map(this::convertToDTO)
-                  .flatMap(userDTO -> {
-                      eventPublisher.publishEvent(new UserCreatedEvent(userDTO.getId(), userDTO.getEmail()));
-                      
-                      return logActivity(userDTO.getId(), "CREATE_USER", "批量创建用户")
-                          .thenReturn(userDTO);
-                  })
-                  .onErrorContinue((error, user) -> 
-                      System.err.println("批量创建用户失败: " + error.getMessage()));
+    public Flux<BulkCreateResult> createUsers(Flux<CreateUserRequest> requests) {
+        return requests.index()
+                       .buffer(bulkCreateChunkSize)
+                       .concatMap(this::createChunk);
+    }
+    
+    private Flux<BulkCreateResult> createChunk(List<Tuple2<Long, CreateUserRequest>> chunk) {
+        BulkCreateResult[] results = new BulkCreateResult[chunk.size()];
+        // 待创建的邮箱 -> 在本块中的位置，同一块内重复的邮箱只保留第一个
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        
+        for (int i = 0; i < chunk.size(); i++) {
+            long index = chunk.get(i).getT1();
+            CreateUserRequest request = chunk.get(i).getT2();
+            request.normalizeEmail();
+            request.normalizeName();
+            
+            Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                results[i] = BulkCreateResult.failed(index, request.getEmail(), violations.iterator().next().getMessage());
+            } else if (pending.putIfAbsent(request.getEmail(), i) != null) {
+                results[i] = BulkCreateResult.duplicate(index, request.getEmail());
+            }
+        }
+        
+        if (pending.isEmpty()) {
+            return Flux.fromArray(results);
+        }
+        
+        return userRepository.findExistingEmails(pending.keySet())
+            .collectList()
+            .flatMap(existing -> {
+                for (String email : existing) {
+                    Integer position = pending.remove(email.toLowerCase());
+                    if (position != null) {
+                        results[position] = BulkCreateResult.duplicate(chunk.get(position).getT1(), email);
+                    }
+                }
+                
+                List<Integer> positions = new ArrayList<>(pending.values());
+                List<User> users = new ArrayList<>(positions.size());
+                for (Integer position : positions) {
+                    User user = convertToEntity(chunk.get(position).getT2());
+                    user.setId(UUID.randomUUID().toString());
+                    users.add(user);
+                }
+                
+                return insertUsers(users)
+                    .doOnNext(createdIds -> {
+                        List<UserDTO> created = new ArrayList<>(createdIds.size());
+                        for (int i = 0; i < users.size(); i++) {
+                            int position = positions.get(i);
+                            long index = chunk.get(position).getT1();
+                            User user = users.get(i);
+                            if (createdIds.contains(user.getId())) {
+                                UserDTO userDTO = convertToDTO(user);
+                                results[position] = BulkCreateResult.created(index, userDTO);
+                                created.add(userDTO);
+                            } else {
+                                // 查询之后被并发请求占用的邮箱
+                                results[position] = BulkCreateResult.duplicate(index, user.getEmail());
+                            }
+                        }
+                        publishBulkCreated(created);
+                    });
+            })
+            .onErrorResume(error -> {
+                // 本块中尚未得出结果的条目全部标记为失败，不影响其他块
+                System.err.println("批量创建用户失败: " + error.getMessage());
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == null) {
+                        results[i] = BulkCreateResult.failed(chunk.get(i).getT1(), chunk.get(i).getT2().getEmail(),
+                                                             "写入数据库失败");
+                    }
+                }
+                return Mono.empty();
+            })
+            .thenMany(Flux.defer(() -> Flux.fromArray(results)));
+    }
+    
+    /**
+     * 多行插入一批用户，返回实际写入的用户ID；全部写入时无需回查
+     */
+    private Mono<Set<String>> insertUsers(List<User> users) {
+        Set<String> ids = users.stream().map(User::getId).collect(Collectors.toSet());
+        return userRepository.insertAll(users)
+                             .flatMap(inserted -> inserted == users.size() ?
+                                 Mono.just(ids) :
+                                 userRepository.findByIdIn(ids)
+                                               .map(User::getId)
+                                               .collect(Collectors.toSet()));
+    }
+    
+    private void publishBulkCreated(List<UserDTO> created) {
+        if (created.isEmpty()) {
+            return;
+        }
+        
+        List<UserActivity> activities = new ArrayList<>(created.size());
+        for (UserDTO userDTO : created) {
+            eventPublisher.publishEvent(new UserCreatedEvent(userDTO.getId(), userDTO.getEmail()));
+            eventPublisher.publishEvent(UserChangedEvent.created(userDTO));
+            activities.add(UserActivity.builder()
+                                       .id(UUID.randomUUID().toString())
+                                       .userId(userDTO.getId())
+                                       .action("CREATE_USER")
+                                       .description("批量创建用户")
+                                       .timestamp(Instant.now())
+                                       .build());
+        }
+        
+        // 整块活动直接多行写入，不经过异步写入队列，避免大批量导入挤占队列容量
+        activityRepository.insertAll(activities)
+                          .doOnNext(rows -> activities.forEach(activity ->
+                              publishActivity(convertToActivityDTO(activity))))
+                          .subscribe(
+                              rows -> { },
+                              error -> System.err.println("批量写入创建活动失败: " + error.getMessage())
+                          );
     }
     
     /**
@@ -191,6 +532,8 @@ public class ReactiveUserService {
         return userRepository.findById(id)
                            .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
                            .flatMap(existingUser -> {
+                               UserDTO before = convertToDTO(existingUser);
+                               
                                // 应用更新
                                if (request.hasName()) {
                                    existingUser.setName(request.getName().trim());
@@ -210,16 +553,14 @@ public class ReactiveUserService {
                                
                                existingUser.updateLastModified();
                                
-                               return userRepository.save(existingUser);
+                               return userRepository.save(existingUser)
+                                                   .map(this::convertToDTO)
+                                                   .flatMap(after -> publishAfterCommit(
+                                                       UserChangedEvent.updated(before, after)).thenReturn(after));
                            })
-                           .map(this::convertToDTO)
                            .flatMap(userDTO -> {
-                               // 清除缓存（如果Redis可用）
-                               String cacheKey = "user:" + userDTO.getId();
-                               Mono<Void> cacheOp = redisTemplate != null ? 
-                                   redisTemplate.delete(cacheKey).then() : 
-                                   Mono.empty();
-                               return cacheOp
+                               // 清除缓存（Redis + 各节点近端缓存）
+                               return evictUserCache(userDTO.getId())
                                    .then(logActivity(userDTO.getId(), "UPDATE_USER", "更新用户信息"))
                                    .thenReturn(userDTO);
                            })
@@ -230,7 +571,7 @@ public class ReactiveUserService {
                                    .eventType(UserUpdateEvent.EventTypes.USER_UPDATED)
                                    .build();
                                
-                               userUpdateSink.tryEmitNext(updateEvent);
+                               updateRouter.publish(updateEvent);
                                return Mono.just(userDTO);
                            })
                            .doOnNext(user -> System.out.println("更新用户成功: " + user.getName()));
@@ -244,25 +585,20 @@ public class ReactiveUserService {
         return userRepository.findById(id)
                            .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
                            .flatMap(user -> {
-                               // 先记录删除活动
-                               return logActivity(user.getId(), "DELETE_USER", "删除用户")
-                                   .then(activityRepository.deleteByUserId(user.getId())) // 删除活动记录
-                                   .then(userRepository.delete(user)); // 删除用户
+                               // 活动表以外键引用用户，用户删除后活动无法写入，因此不记录 DELETE_USER 活动
+                               return activityRepository.deleteByUserId(user.getId()) // 删除活动记录
+                                   .then(userRepository.delete(user)) // 删除用户
+                                   .then(publishAfterCommit(UserChangedEvent.deleted(convertToDTO(user))));
                            })
+                           .then(evictUserCache(id))
                            .then(Mono.fromRunnable(() -> {
-                               // 清除缓存（如果Redis可用）
-                               if (redisTemplate != null) {
-                                   String cacheKey = "user:" + id;
-                                   redisTemplate.delete(cacheKey).subscribe();
-                               }
-                               
                                // 发送实时更新事件
                                UserUpdateEvent updateEvent = UserUpdateEvent.builder()
                                    .userId(id)
                                    .eventType(UserUpdateEvent.EventTypes.USER_DELETED)
                                    .build();
                                
-                               userUpdateSink.tryEmitNext(updateEvent);
+                               updateRouter.publish(updateEvent);
                            }))
                            .doOnSuccess(v -> System.out.println("删除用户成功: " + id))
                            .then();
@@ -279,26 +615,46 @@ public class ReactiveUserService {
                 logActivity(userId, "UPLOAD_AVATAR", "上传头像: " + avatarUrl)
                     .thenReturn(avatarUrl)
             )
-            .doOnNext(avatarUrl -> System.out.println("用户 " + userId + " 上传头像: " + avatarUrl))
-            .subscribeOn(Schedulers.boundedElastic()); // 文件操作使用有界弹性调度器
+            .doOnNext(avatarUrl -> System.out.println("用户 " + userId + " 上传头像: " + avatarUrl));
     }
     
     /**
-     * 获取用户活动流（实时）
+     * 获取用户活动流（实时，默认的慢消费者策略）
      */
     public Flux<UserActivityDTO> getUserActivityStream() {
-        return activitySink.asFlux()
-                          .onBackpressureBuffer(1000)
-                          .share(); // 共享流，避免多个订阅者重复执行
+        return getUserActivityStream(null, null).map(Sequenced::value);
     }
     
     /**
-     * 获取用户更新流（实时）
+     * 获取带序号的用户活动流，携带 lastEventId 时先补发其后仍在重放缓冲区中的活动；
+     * policy 为该订阅者的慢消费者策略，为空时使用默认策略
+     */
+    public Flux<Sequenced<UserActivityDTO>> getUserActivityStream(String lastEventId, SlowConsumerPolicy policy) {
+        return slowConsumerGuard.protect(activityReplay.resume(lastEventId, activity -> true, activityHub.asFlux()),
+                                         policy, SequencedEvents::conflationKey);
+    }
+    
+    /**
+     * 获取用户更新流（实时，全部用户）
      */
     public Flux<UserUpdateEvent> getUserUpdateStream() {
-        return userUpdateSink.asFlux()
-                            .onBackpressureBuffer(1000)
-                            .share();
+        return updateRouter.subscribe(null);
+    }
+    
+    /**
+     * 获取指定用户的更新流（实时），userId 为空时返回全部用户的更新
+     */
+    public Flux<UserUpdateEvent> getUserUpdateStream(String userId) {
+        return updateRouter.subscribe(userId);
+    }
+    
+    /**
+     * 获取带序号的用户更新流，携带 lastEventId 时先补发其后仍在重放缓冲区中的更新；
+     * policy 为该订阅者的慢消费者策略，为空时使用默认策略
+     */
+    public Flux<Sequenced<UserUpdateEvent>> getUserUpdateStream(String userId, String lastEventId,
+                                                                SlowConsumerPolicy policy) {
+        return updateRouter.subscribe(userId, lastEventId, policy);
     }
     
     /**
@@ -315,17 +671,8 @@ public class ReactiveUserService {
      * 获取统计信息
      */
     public Mono<Object> getStatistics() {
-        return Mono.zip(
-            userRepository.countUsers(),
-            userRepository.countActiveUsers(),
-            userRepository.countByAccountType("premium")
-        ).map(tuple -> {
-            return new Object() {
-                public final long totalUsers = tuple.getT1();
-                public final long activeUsers = tuple.getT2();
-                public final long premiumUsers = tuple.getT3();
-            };
-        });
+        return userStatistics.snapshot()
+                             .cast(Object.class);
     }
     
     // 私有辅助方法
@@ -339,11 +686,8 @@ public class ReactiveUserService {
     }
     
     private Mono<String> saveFile(FilePart filePart) {
-        String fileName = UUID.randomUUID() + "_" + filePart.filename();
-        // 实际项目中这里应该保存到文件系统或云存储
-        // 这里仅返回文件名作为示例
-        return Mono.just(fileName)
-                  .delayElement(Duration.ofMillis(100)); // 模拟文件保存时间
+        // 流式写入并按内容哈希去重，文件阻塞操作已在存储内部切换到有界弹性调度器
+        return avatarStorage.store(filePart);
     }
     
     private Mono<String> updateUserAvatar(String userId, String fileName) {
@@ -352,21 +696,113 @@ public class ReactiveUserService {
         return userRepository.findById(userId)
                            .switchIfEmpty(Mono.error(new UserNotFoundException(userId)))
                            .flatMap(user -> {
+                               UserDTO before = convertToDTO(user);
                                user.setAvatarUrl(avatarUrl);
                                user.updateLastModified();
-                               return userRepository.save(user);
+                               return userRepository.save(user)
+                                                   .doOnNext(saved -> eventPublisher.publishEvent(
+                                                       UserChangedEvent.updated(before, convertToDTO(saved))));
                            })
-                           .then(Mono.fromRunnable(() -> {
-                               // 清除缓存（如果Redis可用）
-                               if (redisTemplate != null) {
-                                   String cacheKey = "user:" + userId;
-                                   redisTemplate.delete(cacheKey).subscribe();
-                               }
-                           }))
+                           .then(evictUserCache(userId))
                            .thenReturn(avatarUrl);
     }
     
+    /**
+     * 读取Redis缓存；开启提前刷新时同时读取剩余TTL（同一连接上流水线发送，仍只有一次往返）
+     */
+    private Mono<UserDTO> readCachedUser(String id) {
+        String cacheKey = USER_CACHE_PREFIX + id;
+        if (!earlyRefresh.isEnabled()) {
+            return redisTemplate.opsForValue().get(cacheKey).map(this::toUserDTO);
+        }
+        
+        return Mono.zip(redisTemplate.opsForValue().get(cacheKey),
+                        redisTemplate.getExpire(cacheKey).defaultIfEmpty(Duration.ZERO))
+                   .map(tuple -> {
+                       if (earlyRefresh.shouldRefresh(tuple.getT2())) {
+                           // 后台重建缓存，当前请求仍返回旧值
+                           loadUser(id).subscribe(
+                               user -> { },
+                               error -> System.err.println("提前刷新用户缓存失败: " + error.getMessage()));
+                       }
+                       return toUserDTO(tuple.getT1());
+                   });
+    }
+    
+    /**
+     * 从数据库加载用户并回填Redis，同一ID的并发加载合并为一次查询
+     */
+    private Mono<UserDTO> loadUser(String id) {
+        return userLoadFlight.execute(id, () -> {
+            long start = System.nanoTime();
+            Mono<UserDTO> load = userRepository.findById(id).map(this::convertToDTO);
+            if (redisTemplate != null) {
+                load = load.flatMap(userDTO ->
+                    redisTemplate.opsForValue()
+                                 .set(USER_CACHE_PREFIX + id, userDTO, USER_CACHE_TTL)
+                                 .thenReturn(userDTO));
+            }
+            return load.doOnNext(user -> earlyRefresh.recordRecompute(System.nanoTime() - start))
+                       .switchIfEmpty(Mono.error(new UserNotFoundException(id)));
+        });
+    }
+    
+    /**
+     * 异步回填Redis缓存，不阻塞批量查询的返回
+     */
+    private void backfillRedis(List<UserDTO> users) {
+        if (redisTemplate == null || users.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(users)
+            .flatMap(user -> redisTemplate.opsForValue().set(USER_CACHE_PREFIX + user.getId(), user, USER_CACHE_TTL))
+            .subscribe(
+                ok -> { },
+                error -> System.err.println("回填用户缓存失败: " + error.getMessage()));
+    }
+    
+    /**
+     * 在当前事务提交后发布事件，事务回滚时不发布；不在事务中时立即发布
+     */
+    private Mono<Void> publishAfterCommit(Object... events) {
+        Runnable publish = () -> {
+            for (Object event : events) {
+                eventPublisher.publishEvent(event);
+            }
+        };
+        
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(publish);
+                    }
+                }))
+            .onErrorResume(NoTransactionException.class, error -> Mono.empty())
+            .switchIfEmpty(Mono.fromRunnable(publish))
+            .then();
+    }
+    
+    /**
+     * 清除用户缓存：先删除Redis中的共享缓存，再清除近端缓存并通知其他节点
+     */
+    private Mono<Void> evictUserCache(String userId) {
+        Mono<Void> redisEviction = redisTemplate != null ?
+            redisTemplate.delete(USER_CACHE_PREFIX + userId).then() :
+            Mono.empty();
+        return redisEviction.then(userNearCache.evict(userId));
+    }
+    
     private Mono<Void> logActivity(String userId, String action, String description) {
+        return Mono.fromRunnable(() -> recordActivity(userId, action, description));
+    }
+    
+    /**
+     * 记录活动：交给异步写入器批量落库，调用方不等待数据库
+     */
+    private void recordActivity(String userId, String action, String description) {
         UserActivity activity = UserActivity.builder()
             .id(UUID.randomUUID().toString())
             .userId(userId)
@@ -375,13 +811,29 @@ public class ReactiveUserService {
             .timestamp(Instant.now())
             .build();
         
-        return activityRepository.save(activity)
-                                .map(this::convertToActivityDTO)
-                                .doOnNext(activityDTO -> activitySink.tryEmitNext(activityDTO))
-                                .then();
+        if (activityWriter.submit(activity)) {
+            publishActivity(convertToActivityDTO(activity));
+        }
+    }
+    
+    /**
+     * 发布活动事件：推送给本节点的订阅者并广播到其他节点
+     */
+    private void publishActivity(UserActivityDTO activity) {
+        emitActivity(activity);
+        eventBus.publish(ACTIVITY_TOPIC, activity);
+    }
+    
+    private void emitActivity(UserActivityDTO activity) {
+        activityHub.emit(activity);
     }
     
     // 转换方法
+    private UserDTO toUserDTO(Object cached) {
+        // Redis 序列化器未开启类型信息，读回的是 Map，需要显式转换
+        return cached instanceof UserDTO ? (UserDTO) cached : objectMapper.convertValue(cached, UserDTO.class);
+    }
+    
     private UserDTO convertToDTO(User user) {
         return UserDTO.builder()
                      .id(user.getId())
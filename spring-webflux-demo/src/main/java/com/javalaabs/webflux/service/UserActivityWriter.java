@@ -0,0 +1,168 @@
+package com.javalaabs.webflux.service;
+
+import com.javalaabs.webflux.domain.entity.UserActivity;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import com.javalaabs.webflux.repository.ReactiveUserActivityRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户活动异步写入器（write-behind）
+ * 请求线程只把活动记录放入有界的多生产者队列后立即返回，
+ * 后台按批量大小或时间窗口触发刷新，每批用一条多行 INSERT 写入；
+ * 同一时刻最多只有一个刷新在执行，队列满时丢弃新记录并计数，绝不阻塞请求路径
+ */
+@Component
+public class UserActivityWriter {
+    
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+    
+    private final ReactiveUserActivityRepository activityRepository;
+    private final PerformanceMonitor performanceMonitor;
+    private final int capacity;
+    private final int batchSize;
+    
+    private final ConcurrentLinkedQueue<UserActivity> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    
+    private final Disposable ticker;
+    
+    public UserActivityWriter(ReactiveUserActivityRepository activityRepository,
+                              PerformanceMonitor performanceMonitor,
+                              @Value("${webflux.activity-writer.capacity:10000}") int capacity,
+                              @Value("${webflux.activity-writer.batch-size:200}") int batchSize,
+                              @Value("${webflux.activity-writer.flush-interval:200ms}") Duration flushInterval) {
+        this.activityRepository = activityRepository;
+        this.performanceMonitor = performanceMonitor;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        
+        performanceMonitor.registerActivityWriterMetrics(this);
+        
+        // 定时刷新，保证低流量时记录也能在一个时间窗口内落库
+        this.ticker = Flux.interval(flushInterval, flushInterval)
+                          .subscribe(tick -> tryFlush());
+    }
+    
+    /**
+     * 提交一条活动记录，非阻塞；队列已满时返回 false
+     */
+    public boolean submit(UserActivity activity) {
+        // 先占位再入队，保证并发提交时队列长度不超过上限
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            droppedCount.increment();
+            return false;
+        }
+        queue.offer(activity);
+        
+        if (depth.get() >= batchSize) {
+            tryFlush();
+        }
+        return true;
+    }
+    
+    public int getQueueDepth() {
+        return depth.get();
+    }
+    
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+    
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    /**
+     * 关闭时停止定时器并尽力写完队列中剩余的记录
+     */
+    @PreDestroy
+    public void shutdown() {
+        ticker.dispose();
+        
+        Mono<Void> drain = Mono.defer(() -> {
+            List<UserActivity> batch = pollBatch();
+            return batch.isEmpty() ? Mono.empty() : write(batch);
+        }).repeat(() -> depth.get() > 0).then();
+        
+        try {
+            drain.block(SHUTDOWN_TIMEOUT);
+        } catch (RuntimeException e) {
+            System.err.println("关闭时写入剩余活动记录失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 单消费者刷新：抢到刷新权的线程取出一批写入，完成后若仍有积压则继续
+     */
+    private void tryFlush() {
+        if (depth.get() == 0 || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        List<UserActivity> batch = pollBatch();
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        
+        write(batch).doFinally(signal -> {
+                        flushing.set(false);
+                        if (depth.get() >= batchSize) {
+                            tryFlush();
+                        }
+                    })
+                    .subscribe();
+    }
+    
+    private List<UserActivity> pollBatch() {
+        List<UserActivity> batch = new ArrayList<>(Math.min(batchSize, Math.max(depth.get(), 1)));
+        UserActivity activity;
+        while (batch.size() < batchSize && (activity = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(activity);
+        }
+        return batch;
+    }
+    
+    private Mono<Void> write(List<UserActivity> batch) {
+        long start = System.nanoTime();
+        return activityRepository.insertAll(batch)
+                                 .retryWhen(Retry.backoff(2, Duration.ofMillis(100)))
+                                 .doOnNext(rows -> {
+                                     writtenCount.add(rows);
+                                     performanceMonitor.recordActivityFlush(System.nanoTime() - start, true);
+                                 })
+                                 .onErrorResume(error -> {
+                                     failedCount.add(batch.size());
+                                     performanceMonitor.recordActivityFlush(System.nanoTime() - start, false);
+                                     System.err.println("批量写入活动记录失败，丢弃 " + batch.size() + " 条: " +
+                                                        error.getMessage());
+                                     return Mono.empty();
+                                 })
+                                 .then();
+    }
+}
@@ -0,0 +1,62 @@
+package com.javalaabs.webflux.service;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 用户批量加载器（DataLoader 风格）
+ * 按请求创建，将到达的用户ID按时间窗口或数量聚合成批，
+ * 每批通过一次批量解析（Redis MGET + SELECT ... IN）完成，再按原始顺序分发结果
+ */
+public class UserBatchLoader {
+    
+    // 允许少量批次并行解析，flatMapSequential 保证输出顺序
+    private static final int BATCH_CONCURRENCY = 2;
+    
+    private final Function<Collection<String>, Mono<Map<String, UserDTO>>> batchResolver;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    
+    UserBatchLoader(Function<Collection<String>, Mono<Map<String, UserDTO>>> batchResolver,
+                    int maxBatchSize,
+                    Duration maxWait) {
+        this.batchResolver = batchResolver;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+    }
+    
+    /**
+     * 批量加载用户，结果顺序与输入ID顺序一致，不存在的用户被跳过
+     */
+    public Flux<UserDTO> loadMany(Flux<String> ids) {
+        return ids.filter(Objects::nonNull)
+                  .bufferTimeout(maxBatchSize, maxWait)
+                  .flatMapSequential(this::loadBatch, BATCH_CONCURRENCY);
+    }
+    
+    private Flux<UserDTO> loadBatch(List<String> batch) {
+        // 同一批次内的重复ID只解析一次
+        Collection<String> distinctIds = new LinkedHashSet<>(batch);
+        
+        return batchResolver.apply(distinctIds)
+                            .flatMapIterable(resolved -> batch.stream()
+                                .map(id -> {
+                                    UserDTO user = resolved.get(id);
+                                    if (user == null) {
+                                        System.err.println("用户不存在: " + id);
+                                    }
+                                    return user;
+                                })
+                                .filter(Objects::nonNull)
+                                .toList());
+    }
+}
@@ -0,0 +1,189 @@
+package com.javalaabs.webflux.service;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.event.UserChangedEvent;
+import com.javalaabs.webflux.repository.ReactiveUserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户统计（增量维护）
+ * 启动时从数据库播种一次，之后根据 {@link UserChangedEvent} 增减分段计数器，
+ * 读取统计不再访问数据库；后台定期与数据库对账，修正多节点写入或事件丢失带来的偏差
+ */
+@Component
+public class UserStatistics {
+    
+    public static final String PREMIUM_ACCOUNT_TYPE = "premium";
+    
+    private final ReactiveUserRepository userRepository;
+    private final Duration reconcileInterval;
+    
+    private final Counter totalUsers = new Counter();
+    private final Counter activeUsers = new Counter();
+    private final Counter premiumUsers = new Counter();
+    
+    private volatile boolean seeded;
+    private volatile Instant lastReconciled;
+    private volatile Disposable reconcileSubscription;
+    
+    public UserStatistics(ReactiveUserRepository userRepository,
+                          @Value("${webflux.statistics.reconcile-interval:5m}") Duration reconcileInterval) {
+        this.userRepository = userRepository;
+        this.reconcileInterval = reconcileInterval;
+    }
+    
+    /**
+     * 应用就绪后立即播种，并按固定间隔对账；上一次对账未完成时跳过本轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconciliation() {
+        reconcileSubscription = Flux.interval(Duration.ZERO, reconcileInterval)
+                                    .onBackpressureDrop()
+                                    .concatMap(tick -> reconcile()
+                                        .onErrorResume(error -> {
+                                            System.err.println("用户统计对账失败: " + error.getMessage());
+                                            return Mono.empty();
+                                        }), 1)
+                                    .subscribe();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        Disposable subscription = reconcileSubscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+    
+    /**
+     * 读取当前统计；尚未完成播种时先同步对账一次
+     */
+    public Mono<Snapshot> snapshot() {
+        if (seeded) {
+            return Mono.just(currentSnapshot());
+        }
+        return reconcile().then(Mono.fromSupplier(this::currentSnapshot));
+    }
+    
+    /**
+     * 根据用户变更事件调整计数
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        UserDTO before = event.getBefore();
+        UserDTO after = event.getAfter();
+        
+        totalUsers.add(presence(after) - presence(before));
+        activeUsers.add(active(after) - active(before));
+        premiumUsers.add(premium(after) - premium(before));
+    }
+    
+    /**
+     * 与数据库对账：以查询开始前的增量为基准，查询期间到达的事件仍然保留
+     */
+    private Mono<Void> reconcile() {
+        return Mono.defer(() -> {
+            long totalDelta = totalUsers.delta();
+            long activeDelta = activeUsers.delta();
+            long premiumDelta = premiumUsers.delta();
+            
+            return Mono.zip(
+                userRepository.countUsers(),
+                userRepository.countActiveUsers(),
+                userRepository.countByAccountType(PREMIUM_ACCOUNT_TYPE)
+            ).doOnNext(counts -> {
+                totalUsers.rebase(counts.getT1(), totalDelta);
+                activeUsers.rebase(counts.getT2(), activeDelta);
+                premiumUsers.rebase(counts.getT3(), premiumDelta);
+                lastReconciled = Instant.now();
+                seeded = true;
+            }).then();
+        });
+    }
+    
+    private Snapshot currentSnapshot() {
+        return new Snapshot(totalUsers.get(), activeUsers.get(), premiumUsers.get(), lastReconciled);
+    }
+    
+    private static long presence(UserDTO user) {
+        return user != null ? 1 : 0;
+    }
+    
+    private static long active(UserDTO user) {
+        return user != null && Boolean.TRUE.equals(user.getIsActive()) ? 1 : 0;
+    }
+    
+    private static long premium(UserDTO user) {
+        return user != null && PREMIUM_ACCOUNT_TYPE.equals(user.getAccountType()) ? 1 : 0;
+    }
+    
+    /**
+     * 计数器：对账得到的基准值 + 事件累积的增量（LongAdder 分段累加，避免热点竞争）
+     */
+    private static final class Counter {
+        private final LongAdder delta = new LongAdder();
+        private volatile long base;
+        
+        private void add(long value) {
+            if (value != 0) {
+                delta.add(value);
+            }
+        }
+        
+        private long delta() {
+            return delta.sum();
+        }
+        
+        private void rebase(long databaseCount, long deltaAtQueryStart) {
+            base = databaseCount - deltaAtQueryStart;
+        }
+        
+        private long get() {
+            return Math.max(0, base + delta.sum());
+        }
+    }
+    
+    /**
+     * 统计快照
+     */
+    public static final class Snapshot {
+        private final long totalUsers;
+        private final long activeUsers;
+        private final long premiumUsers;
+        private final Instant reconciledAt;
+        
+        private Snapshot(long totalUsers, long activeUsers, long premiumUsers, Instant reconciledAt) {
+            this.totalUsers = totalUsers;
+            this.activeUsers = activeUsers;
+            this.premiumUsers = premiumUsers;
+            this.reconciledAt = reconciledAt;
+        }
+        
+        public long getTotalUsers() {
+            return totalUsers;
+        }
+        
+        public long getActiveUsers() {
+            return activeUsers;
+        }
+        
+        public long getPremiumUsers() {
+            return premiumUsers;
+        }
+        
+        public Instant getReconciledAt() {
+            return reconciledAt;
+        }
+    }
+}
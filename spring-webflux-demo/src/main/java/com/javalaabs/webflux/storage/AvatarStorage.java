@@ -0,0 +1,191 @@
+package com.javalaabs.webflux.storage;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 头像存储（按内容寻址）
+ * 上传内容逐个 DataBuffer 异步写入临时文件，同时计算 SHA-256 并累计大小，超出上限立即中止上传；
+ * 写完后以"哈希值.扩展名"作为文件名落盘，相同内容的重复上传只删除临时文件，不占用额外磁盘
+ */
+@Component
+public class AvatarStorage {
+    
+    private final Path directory;
+    private final long maxSize;
+    
+    private final LongAdder storedCount = new LongAdder();
+    private final LongAdder deduplicatedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    
+    public AvatarStorage(PerformanceMonitor performanceMonitor,
+                         @Value("${webflux.avatar.storage-dir:${java.io.tmpdir}/webflux-avatars}") Path directory,
+                         @Value("${webflux.avatar.max-size:5MB}") DataSize maxSize) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法创建头像存储目录: " + this.directory, e);
+        }
+        
+        performanceMonitor.registerAvatarStorageMetrics(this);
+    }
+    
+    /**
+     * 保存上传的头像，返回按内容寻址的文件名（SHA-256 十六进制 + 原扩展名）
+     */
+    public Mono<String> store(FilePart filePart) {
+        String extension = extension(filePart.filename());
+        // 成功、失败和取消（客户端中途断开）时都清理临时文件；成功时临时文件已被移走，删除是空操作
+        return Mono.usingWhen(Mono.fromCallable(() -> Files.createTempFile(directory, "upload-", ".tmp"))
+                                  .subscribeOn(Schedulers.boundedElastic()),
+                              tempFile -> write(filePart.content(), tempFile)
+                                  .flatMap(hash -> commit(tempFile, hash + extension)),
+                              this::deleteQuietly);
+    }
+    
+    /**
+     * 解析已存储文件的路径，文件名必须是本存储生成的格式，避免路径穿越
+     */
+    public Path resolve(String fileName) {
+        if (!fileName.matches("[0-9a-f]{64}\\.(png|jpg|jpeg)")) {
+            return null;
+        }
+        return directory.resolve(fileName);
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public long getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getStoredCount() {
+        return storedCount.sum();
+    }
+    
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.sum();
+    }
+    
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+    
+    /**
+     * 边写边算哈希：每个 DataBuffer 先累计大小并更新摘要，再交给异步文件通道写入后释放；
+     * 累计大小超过上限时立即报错，取消上游读取，不必等上传结束
+     */
+    private Mono<String> write(Flux<DataBuffer> content, Path tempFile) {
+        MessageDigest digest = sha256();
+        long[] size = new long[1];
+        
+        Flux<DataBuffer> hashed = content.handle((buffer, sink) -> {
+            size[0] += buffer.readableByteCount();
+            if (size[0] > maxSize) {
+                DataBufferUtils.release(buffer);
+                rejectedCount.increment();
+                sink.error(new IllegalArgumentException("头像文件不能超过 " + maxSize / 1024 + "KB"));
+                return;
+            }
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer byteBuffer = iterator.next();
+                    digest.update(byteBuffer);
+                }
+            }
+            sink.next(buffer);
+        });
+        
+        return Mono.using(() -> AsynchronousFileChannel.open(tempFile, StandardOpenOption.WRITE),
+                          channel -> DataBufferUtils.write(hashed, channel)
+                                                    .doOnNext(DataBufferUtils::release)
+                                                    .then(Mono.fromCallable(() -> {
+                                                        if (size[0] == 0) {
+                                                            throw new IllegalArgumentException("头像文件不能为空");
+                                                        }
+                                                        return HexFormat.of().formatHex(digest.digest());
+                                                    })),
+                          this::closeQuietly);
+    }
+    
+    /**
+     * 把临时文件移动到内容地址；目标已存在说明是重复内容，直接丢弃临时文件
+     */
+    private Mono<String> commit(Path tempFile, String fileName) {
+        return Mono.fromCallable(() -> {
+            Path target = directory.resolve(fileName);
+            if (Files.exists(target)) {
+                Files.deleteIfExists(tempFile);
+                deduplicatedCount.increment();
+                return fileName;
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                storedCount.increment();
+            } catch (FileAlreadyExistsException e) {
+                // 并发上传了相同内容
+                Files.deleteIfExists(tempFile);
+                deduplicatedCount.increment();
+            }
+            return fileName;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    private Mono<Void> deleteQuietly(Path tempFile) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                System.err.println("删除临时文件失败: " + tempFile + " - " + e.getMessage());
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    private void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("关闭文件通道失败: " + e.getMessage());
+        }
+    }
+    
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot).toLowerCase(Locale.ROOT);
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.javalaabs.webflux.streaming;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 跨节点事件总线
+ * 本节点发布的事件先在本地投递，再放入有界队列按批量大小或时间窗口批量发往 {@link EventTransport}；
+ * 每个主题在每个节点只建立一个传输层订阅，收到其他节点的事件后交给本地处理器扇出给各自的连接。
+ * 未配置传输（单节点部署）时只做本地投递
+ */
+@Component
+public class ClusterEventBus {
+    
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+    
+    private final EventTransport transport;
+    private final ObjectMapper objectMapper;
+    private final PerformanceMonitor performanceMonitor;
+    private final int capacity;
+    private final int batchSize;
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    private final Map<String, Consumer<EventBatch.Envelope>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+    private final List<Disposable> subscriptions = new CopyOnWriteArrayList<>();
+    
+    private final ConcurrentLinkedQueue<Outbound> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder receivedCount = new LongAdder();
+    
+    private final Disposable ticker;
+    
+    public ClusterEventBus(@Autowired(required = false) EventTransport transport,
+                           ObjectMapper objectMapper,
+                           PerformanceMonitor performanceMonitor,
+                           @Value("${webflux.event-bus.capacity:10000}") int capacity,
+                           @Value("${webflux.event-bus.batch-size:100}") int batchSize,
+                           @Value("${webflux.event-bus.flush-interval:20ms}") Duration flushInterval) {
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.performanceMonitor = performanceMonitor;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        
+        performanceMonitor.registerEventBusMetrics(this);
+        
+        this.ticker = transport == null ? null : Flux.interval(flushInterval, flushInterval)
+                                                     .subscribe(tick -> tryFlush());
+    }
+    
+    /**
+     * 注册主题的本地处理器，只接收其他节点发布的事件
+     */
+    public <T> void register(String topic, Class<T> type, Consumer<T> handler) {
+        lagTimers.computeIfAbsent(topic, performanceMonitor::registerEventBusTopicMetrics);
+        handlers.put(topic, envelope -> {
+            try {
+                handler.accept(objectMapper.readValue(envelope.payload(), type));
+            } catch (JsonProcessingException e) {
+                System.err.println("无法解析主题 " + topic + " 的事件: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * 把事件发往其他节点；非阻塞，队列已满时丢弃并计数
+     * 事件在调用时序列化，之后对事件对象的修改不会影响已发布的内容
+     */
+    public void publish(String topic, Object event) {
+        if (transport == null) {
+            return;
+        }
+        
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            failedCount.increment();
+            System.err.println("无法序列化主题 " + topic + " 的事件: " + e.getMessage());
+            return;
+        }
+        
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            droppedCount.increment();
+            return;
+        }
+        queue.offer(new Outbound(topic, new EventBatch.Envelope(System.currentTimeMillis(), payload)));
+        
+        if (depth.get() >= batchSize) {
+            tryFlush();
+        }
+    }
+    
+    /**
+     * 应用就绪后为每个已注册的主题建立一个节点级订阅，断开后指数退避重连
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeTopics() {
+        if (transport == null) {
+            return;
+        }
+        
+        handlers.forEach((topic, handler) -> subscriptions.add(
+            transport.subscribe(topic)
+                     .filter(batch -> !nodeId.equals(batch.origin()))
+                     .doOnNext(batch -> dispatch(handler, lagTimers.get(topic), batch))
+                     .doOnError(error -> System.err.println("事件总线订阅 " + topic + " 中断: " + error.getMessage()))
+                     .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                                     .maxBackoff(Duration.ofSeconds(30)))
+                     .subscribe()));
+        
+        System.out.println("事件总线已启动: transport=" + transport.getName() + ", topics=" + handlers.keySet());
+    }
+    
+    /**
+     * 关闭时停止订阅，并尽力发出队列中剩余的事件
+     */
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Disposable::dispose);
+        if (ticker == null) {
+            return;
+        }
+        ticker.dispose();
+        
+        Mono<Void> drain = Mono.defer(() -> {
+            List<Outbound> batch = pollBatch();
+            return batch.isEmpty() ? Mono.empty() : send(batch);
+        }).repeat(() -> depth.get() > 0).then();
+        
+        try {
+            drain.block(SHUTDOWN_TIMEOUT);
+        } catch (RuntimeException e) {
+            System.err.println("关闭时发布剩余事件失败: " + e.getMessage());
+        }
+    }
+    
+    public boolean isDistributed() {
+        return transport != null;
+    }
+    
+    public String getTransportName() {
+        return transport != null ? transport.getName() : "local";
+    }
+    
+    public int getQueueDepth() {
+        return depth.get();
+    }
+    
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+    
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+    
+    private void dispatch(Consumer<EventBatch.Envelope> handler, Timer lagTimer, EventBatch batch) {
+        long now = System.currentTimeMillis();
+        for (EventBatch.Envelope envelope : batch.events()) {
+            receivedCount.increment();
+            // 跨节点延迟依赖节点间的时钟同步，时钟回拨时按 0 记录
+            lagTimer.record(Math.max(0, now - envelope.publishedAt()), TimeUnit.MILLISECONDS);
+            handler.accept(envelope);
+        }
+    }
+    
+    /**
+     * 单消费者刷新：抢到刷新权的线程取出一批按主题分组发布，完成后若仍有积压则继续
+     */
+    private void tryFlush() {
+        if (depth.get() == 0 || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        List<Outbound> batch = pollBatch();
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        
+        send(batch).doFinally(signal -> {
+                       flushing.set(false);
+                       if (depth.get() >= batchSize) {
+                           tryFlush();
+                       }
+                   })
+                   .subscribe();
+    }
+    
+    private List<Outbound> pollBatch() {
+        List<Outbound> batch = new ArrayList<>(Math.min(batchSize, Math.max(depth.get(), 1)));
+        Outbound outbound;
+        while (batch.size() < batchSize && (outbound = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(outbound);
+        }
+        return batch;
+    }
+    
+    private Mono<Void> send(List<Outbound> batch) {
+        Map<String, List<EventBatch.Envelope>> byTopic = new LinkedHashMap<>();
+        for (Outbound outbound : batch) {
+            byTopic.computeIfAbsent(outbound.topic(), topic -> new ArrayList<>()).add(outbound.envelope());
+        }
+        
+        return Flux.fromIterable(byTopic.entrySet())
+                   .concatMap(entry -> transport.publish(entry.getKey(), new EventBatch(nodeId, entry.getValue()))
+                                                .retryWhen(Retry.backoff(2, Duration.ofMillis(50)))
+                                                .doOnSuccess(done -> publishedCount.add(entry.getValue().size()))
+                                                .onErrorResume(error -> {
+                                                    failedCount.add(entry.getValue().size());
+                                                    System.err.println("发布主题 " + entry.getKey() + " 的 " +
+                                                                       entry.getValue().size() + " 条事件失败: " +
+                                                                       error.getMessage());
+                                                    return Mono.empty();
+                                                }))
+                   .then();
+    }
+    
+    private record Outbound(String topic, EventBatch.Envelope envelope) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.javalaabs.webflux.streaming;
+
+import java.util.List;
+
+/**
+ * 跨节点传输的事件批次
+ * origin 为发出批次的节点，events 中每条事件带有发布时间，接收端据此计算投递延迟
+ */
+public record EventBatch(String origin, List<Envelope> events) {
+    
+    /**
+     * 单条事件：发布时间（毫秒时间戳）+ JSON 内容
+     */
+    public record Envelope(long publishedAt, String payload) {
+    }
+}
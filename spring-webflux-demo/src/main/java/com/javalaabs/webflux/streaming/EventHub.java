@@ -0,0 +1,107 @@
+package com.javalaabs.webflux.streaming;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 多生产者事件中心
+ * 任意线程可并发调用 emit：事件先进入无锁队列，再由抢到 wip 的线程单独执行投递循环，
+ * 其他生产者入队后立即返回；不像 Sinks.many().multicast() 在并发发射时返回 FAIL_NON_SERIALIZED 而丢事件，
+ * 发射路径上也没有全局锁。队列满时丢弃新事件并计数。
+ * 发射的事件 E 在投递循环中经 stage 转换为投递的事件 T，stage 与投递一起串行执行：
+ * 在 stage 中分配序号时，每个订阅者收到的序号一定是递增的
+ */
+public class EventHub<E, T> {
+    
+    private final String name;
+    private final int capacity;
+    private final Function<E, T> stage;
+    
+    private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Set<FluxSink<T>> subscribers = ConcurrentHashMap.newKeySet();
+    
+    private final LongAdder emittedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    
+    public EventHub(String name, int capacity, Function<E, T> stage) {
+        this.name = name;
+        this.capacity = capacity;
+        this.stage = stage;
+    }
+    
+    /**
+     * 发射事件（线程安全、不阻塞）；队列已满时丢弃并返回 false
+     */
+    public boolean emit(E event) {
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            droppedCount.increment();
+            return false;
+        }
+        queue.offer(event);
+        emittedCount.increment();
+        drain();
+        return true;
+    }
+    
+    /**
+     * 订阅事件；投递在发射线程上进行，订阅方应自行做背压处理（如 {@link SlowConsumerGuard}）
+     */
+    public Flux<T> asFlux() {
+        return Flux.create(sink -> {
+            subscribers.add(sink);
+            sink.onDispose(() -> subscribers.remove(sink));
+        });
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getQueueDepth() {
+        return depth.get();
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    public long getEmittedCount() {
+        return emittedCount.sum();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+    
+    /**
+     * 同一时刻只有一个线程在投递，其他线程的调用只登记一次"还有工作"，由正在投递的线程接着处理
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            E emitted;
+            while ((emitted = queue.poll()) != null) {
+                depth.decrementAndGet();
+                T event = stage.apply(emitted);
+                for (FluxSink<T> subscriber : subscribers) {
+                    subscriber.next(event);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -0,0 +1,27 @@
+package com.javalaabs.webflux.streaming;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 跨节点事件传输
+ * {@link ClusterEventBus} 通过它把本节点的事件批量发往其他节点，并为每个主题建立一个节点级订阅；
+ * 实现只负责批次的传递，不关心事件内容
+ */
+public interface EventTransport {
+    
+    /**
+     * 传输名称，用于日志和指标
+     */
+    String getName();
+    
+    /**
+     * 发布一个批次
+     */
+    Mono<Void> publish(String topic, EventBatch batch);
+    
+    /**
+     * 订阅主题上的批次（包括本节点发出的批次，由事件总线过滤）
+     */
+    Flux<EventBatch> subscribe(String topic);
+}
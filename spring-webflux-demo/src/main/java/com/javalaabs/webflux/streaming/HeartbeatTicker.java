@@ -0,0 +1,95 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * 共享心跳
+ * 所有流式连接共用一个定时器（有订阅者时才运行），每个连接只在空闲超过心跳间隔时才发送心跳；
+ * 最近发送过真实数据的连接不会收到心跳，连接数再多也只有一个定时任务
+ */
+@Component
+public class HeartbeatTicker {
+    
+    private final Flux<Long> ticks;
+    private final long intervalNanos;
+    
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+    
+    public HeartbeatTicker(PerformanceMonitor performanceMonitor,
+                           @Value("${webflux.streaming.heartbeat.interval:30s}") Duration interval,
+                           @Value("${webflux.streaming.heartbeat.tick:5s}") Duration tick) {
+        this.intervalNanos = interval.toNanos();
+        this.ticks = Flux.interval(tick, tick).share();
+        
+        performanceMonitor.registerHeartbeatMetrics(this);
+    }
+    
+    /**
+     * 为事件流合并心跳：连接空闲超过心跳间隔时由 heartbeat 生成一条心跳，事件流结束时心跳随之停止
+     */
+    public <T> Flux<T> withHeartbeat(Flux<T> events, LongFunction<T> heartbeat) {
+        return Flux.defer(() -> {
+            Connection connection = new Connection();
+            
+            return events.publish(shared -> shared.doOnNext(event -> connection.lastSent = System.nanoTime())
+                                                  .mergeWith(beats(connection, heartbeat).takeUntilOther(shared.then())));
+        });
+    }
+    
+    /**
+     * 只有心跳的流，用于客户端保持连接
+     */
+    public <T> Flux<T> heartbeats(LongFunction<T> heartbeat) {
+        return Flux.defer(() -> beats(new Connection(), heartbeat));
+    }
+    
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+    
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+    
+    /**
+     * 每个连接各自按最新值消费共享定时器，慢连接不会拖住其他连接的心跳
+     */
+    private <T> Flux<T> beats(Connection connection, LongFunction<T> heartbeat) {
+        return ticks.onBackpressureLatest()
+                    .filter(tick -> connection.heartbeatDue(System.nanoTime()))
+                    .map(heartbeat::apply);
+    }
+    
+    /**
+     * 单个连接的发送时间；lastSent 由事件线程和定时器线程共同更新，nextDue 只由定时器线程访问
+     */
+    private final class Connection {
+        private volatile long lastSent = System.nanoTime();
+        private long nextDue = lastSent + intervalNanos;
+        
+        /**
+         * 空闲超过心跳间隔时发送心跳；到了心跳时间但最近发送过数据时跳过并计为一次抑制
+         */
+        private boolean heartbeatDue(long now) {
+            if (now - lastSent >= intervalNanos) {
+                lastSent = now;
+                nextDue = now + intervalNanos;
+                sentCount.increment();
+                return true;
+            }
+            if (now - nextDue >= 0) {
+                nextDue = now + intervalNanos;
+                suppressedCount.increment();
+            }
+            return false;
+        }
+    }
+}
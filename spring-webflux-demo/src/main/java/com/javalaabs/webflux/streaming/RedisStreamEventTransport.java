@@ -0,0 +1,93 @@
+package com.javalaabs.webflux.streaming;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.stream.StreamReceiver;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于 Redis Streams 的事件传输
+ * 每个批次写成流中的一条记录（XADD，按 maxLength 近似裁剪），订阅端用阻塞 XREAD 拉取；
+ * 订阅断开重连时从最后收到的记录之后继续读取，不会丢失断线期间的批次
+ */
+public class RedisStreamEventTransport implements EventTransport {
+    
+    private static final String ORIGIN_FIELD = "origin";
+    private static final String EVENTS_FIELD = "events";
+    private static final TypeReference<List<EventBatch.Envelope>> ENVELOPES = new TypeReference<>() { };
+    
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final StreamReceiver<String, MapRecord<String, String, String>> receiver;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final XAddOptions addOptions;
+    
+    public RedisStreamEventTransport(ReactiveRedisConnectionFactory connectionFactory,
+                                     ObjectMapper objectMapper,
+                                     String keyPrefix,
+                                     long maxLength,
+                                     Duration pollTimeout) {
+        this.redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        this.receiver = StreamReceiver.create(connectionFactory,
+                                              StreamReceiver.StreamReceiverOptions.builder()
+                                                                                  .pollTimeout(pollTimeout)
+                                                                                  .build());
+        this.objectMapper = objectMapper;
+        this.keyPrefix = keyPrefix;
+        this.addOptions = XAddOptions.maxlen(maxLength).approximateTrimming(true);
+    }
+    
+    @Override
+    public String getName() {
+        return "redis-streams";
+    }
+    
+    @Override
+    public Mono<Void> publish(String topic, EventBatch batch) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(batch.events()))
+                   .flatMap(events -> redisTemplate.opsForStream()
+                                                   .add(MapRecord.create(keyPrefix + topic,
+                                                                         Map.of(ORIGIN_FIELD, batch.origin(),
+                                                                                EVENTS_FIELD, events)),
+                                                        addOptions))
+                   .then();
+    }
+    
+    @Override
+    public Flux<EventBatch> subscribe(String topic) {
+        String key = keyPrefix + topic;
+        AtomicReference<RecordId> lastRecordId = new AtomicReference<>();
+        
+        // defer：每次（重新）订阅时根据最后收到的记录决定读取位置
+        return Flux.defer(() -> {
+            RecordId last = lastRecordId.get();
+            ReadOffset offset = last != null ? ReadOffset.from(last) : ReadOffset.latest();
+            return receiver.receive(StreamOffset.create(key, offset));
+        }).doOnNext(record -> lastRecordId.set(record.getId()))
+          .map(this::toBatch);
+    }
+    
+    private EventBatch toBatch(MapRecord<String, String, String> record) {
+        Map<String, String> fields = record.getValue();
+        try {
+            return new EventBatch(fields.get(ORIGIN_FIELD), objectMapper.readValue(fields.get(EVENTS_FIELD), ENVELOPES));
+        } catch (JsonProcessingException e) {
+            System.err.println("无法解析事件批次 " + record.getId() + ": " + e.getMessage());
+            return new EventBatch(fields.get(ORIGIN_FIELD), List.of());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.javalaabs.webflux.streaming;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 事件重放环形缓冲区
+ * 为最近的事件分配单调递增的序号并保留最近 capacity 条，SSE 客户端断线重连时按 Last-Event-ID 补发；
+ * 写入只有一次 CAS 取号和一次槽位 CAS，不加锁。
+ * 事件 id 形如 "纪元-序号"，纪元在每个缓冲区实例创建时随机生成：
+ * 客户端重连到其他节点或重启后的进程时，带回的 id 不属于当前纪元，会被识别为缺口而不是误补发
+ */
+public class ReplayBuffer<T> {
+    
+    private final AtomicReferenceArray<Sequenced<T>> slots;
+    private final AtomicLong sequence = new AtomicLong();
+    private final String epoch;
+    private final int capacity;
+    
+    public ReplayBuffer(int capacity) {
+        this(capacity, Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36));
+    }
+    
+    ReplayBuffer(int capacity, String epoch) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("重放缓冲区容量必须大于0");
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.epoch = epoch;
+    }
+    
+    /**
+     * 追加事件，返回带序号的事件
+     */
+    public Sequenced<T> append(T value) {
+        return append(id -> value);
+    }
+    
+    /**
+     * 先取号再由 factory 构造事件，便于把事件 id 写进事件本身
+     */
+    public Sequenced<T> append(Function<String, T> factory) {
+        long seq = sequence.incrementAndGet();
+        String id = formatId(seq);
+        Sequenced<T> entry = new Sequenced<>(seq, id, factory.apply(id), false);
+        int index = index(seq);
+        
+        // 落后整整一圈的写入者不能覆盖更新的事件
+        Sequenced<T> current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence() > seq) {
+                break;
+            }
+        } while (!slots.compareAndSet(index, current, entry));
+        
+        return entry;
+    }
+    
+    /**
+     * 从 lastEventId 之后恢复：先订阅实时流，再补发缓冲区中的事件，最后切换到实时流并去掉重复；
+     * lastEventId 为空时直接返回实时流。请求的事件已被覆盖或不属于本缓冲区时先发出一个缺口标记
+     */
+    public Flux<Sequenced<T>> resume(String lastEventId, Predicate<T> filter, Flux<Sequenced<T>> live) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return live;
+        }
+        long lastSequence = parseSequence(lastEventId.trim());
+        return Flux.create(sink -> {
+            ResumeState<T> state = new ResumeState<>(sink);
+            sink.onDispose(live.subscribe(state::onLive, sink::error, sink::complete));
+            state.replay(this, lastSequence, filter);
+        });
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public long getLastSequence() {
+        return sequence.get();
+    }
+    
+    private String formatId(long seq) {
+        return epoch + '-' + seq;
+    }
+    
+    /**
+     * 解析本纪元的事件 id；其他纪元或格式不合法的 id 返回 -1，恢复时按缺口处理
+     */
+    private long parseSequence(String eventId) {
+        String prefix = epoch + '-';
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private int index(long seq) {
+        return (int) Math.floorMod(seq, (long) capacity);
+    }
+    
+    /**
+     * 带序号的事件，id 用作 SSE 的 id 字段；
+     * gap 为 true 时表示缺口标记，value 为空，sequence 为仍可补发的最早序号的前一个
+     */
+    public record Sequenced<T>(long sequence, String id, T value, boolean gap) {
+    }
+    
+    /**
+     * 恢复过程的状态：补发期间到达的实时事件先暂存，补发完成后按序号去重再放行；
+     * 只有补发阶段的实时事件会进入同步块，补发结束后实时事件直接投递
+     */
+    private static final class ResumeState<T> {
+        private final FluxSink<Sequenced<T>> sink;
+        private final List<Sequenced<T>> held = new ArrayList<>();
+        private final Set<Long> missing = new HashSet<>();
+        private volatile boolean replaying = true;
+        private long replayedUpTo;
+        
+        private ResumeState(FluxSink<Sequenced<T>> sink) {
+            this.sink = sink;
+        }
+        
+        private void onLive(Sequenced<T> event) {
+            if (replaying) {
+                synchronized (this) {
+                    if (replaying) {
+                        held.add(event);
+                        return;
+                    }
+                }
+            }
+            if (!alreadyReplayed(event)) {
+                sink.next(event);
+            }
+        }
+        
+        private void replay(ReplayBuffer<T> buffer, long lastSequence, Predicate<T> filter) {
+            long head = buffer.sequence.get();
+            long oldest = Math.max(head - buffer.capacity + 1, 1);
+            
+            if (lastSequence < 0 || lastSequence > head || lastSequence < oldest - 1) {
+                sink.next(new Sequenced<>(oldest - 1, buffer.formatId(oldest - 1), null, true));
+            }
+            
+            for (long seq = Math.max(lastSequence + 1, oldest); seq <= head; seq++) {
+                Sequenced<T> entry = buffer.slots.get(buffer.index(seq));
+                if (entry == null || entry.sequence() < seq) {
+                    // 已取号但还没写入槽位，稍后会从实时流到达
+                    missing.add(seq);
+                } else if (entry.sequence() == seq && filter.test(entry.value())) {
+                    sink.next(entry);
+                }
+            }
+            
+            synchronized (this) {
+                replayedUpTo = head;
+                for (Sequenced<T> event : held) {
+                    if (!alreadyReplayed(event)) {
+                        sink.next(event);
+                    }
+                }
+                held.clear();
+                replaying = false;
+            }
+        }
+        
+        private boolean alreadyReplayed(Sequenced<T> event) {
+            return event.sequence() <= replayedUpTo && !missing.contains(event.sequence());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.domain.dto.UserActivityDTO;
+import com.javalaabs.webflux.domain.event.UserUpdateEvent;
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.Map;
+
+/**
+ * 带序号事件到 SSE 的转换：事件 id 写入 id 字段，浏览器重连时通过 Last-Event-ID 请求头带回
+ */
+public final class SequencedEvents {
+    
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    public static final String GAP_EVENT = "gap";
+    
+    private SequencedEvents() {
+    }
+    
+    /**
+     * 合并键：同一用户的事件合并为最新一条，缺口标记从不合并
+     */
+    public static Object conflationKey(Sequenced<?> event) {
+        if (event.gap() || event.value() == null) {
+            return event;
+        }
+        if (event.value() instanceof UserUpdateEvent update) {
+            return update.getUserId();
+        }
+        if (event.value() instanceof UserActivityDTO activity) {
+            return activity.getUserId();
+        }
+        return event;
+    }
+    
+    /**
+     * 心跳事件，不带 id，不影响客户端的 Last-Event-ID
+     */
+    public static ServerSentEvent<Object> heartbeat(long tick) {
+        return ServerSentEvent.builder()
+                              .event("heartbeat")
+                              .data("ping")
+                              .build();
+    }
+    
+    /**
+     * 转换为 SSE；缺口标记转换为 gap 事件，提示客户端重新加载完整状态
+     */
+    public static ServerSentEvent<Object> toServerSentEvent(Sequenced<?> event, String eventName) {
+        if (event.gap()) {
+            return ServerSentEvent.builder()
+                                  .id(event.id())
+                                  .event(GAP_EVENT)
+                                  .data(Map.of("resumedAfter", event.id(),
+                                               "message", "部分事件已超出重放范围，请重新加载完整状态"))
+                                  .build();
+        }
+        return ServerSentEvent.builder()
+                              .id(event.id())
+                              .event(eventName)
+                              .data(event.value())
+                              .build();
+    }
+}
@@ -0,0 +1,222 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 慢消费者保护
+ * 为每个订阅者维护独立的有界待发送队列，按下游请求量发送；下游跟不上时按 {@link SlowConsumerPolicy} 处理，
+ * 单个慢客户端占用的内存不超过 bufferSize 条事件，也不会拖慢发布线程和其他订阅者
+ */
+@Component
+public class SlowConsumerGuard {
+    
+    private final SlowConsumerPolicy defaultPolicy;
+    private final int bufferSize;
+    private final int maxDrops;
+    
+    private final Map<SlowConsumerPolicy, LongAdder> droppedCounts = new EnumMap<>(SlowConsumerPolicy.class);
+    private final LongAdder conflatedCount = new LongAdder();
+    private final LongAdder disconnectedCount = new LongAdder();
+    
+    public SlowConsumerGuard(PerformanceMonitor performanceMonitor,
+                             @Value("${webflux.streaming.slow-consumer.policy:drop-oldest}") String defaultPolicy,
+                             @Value("${webflux.streaming.subscriber-buffer-size:256}") int bufferSize,
+                             @Value("${webflux.streaming.slow-consumer.max-drops:1000}") int maxDrops) {
+        // 配置留空时回退到 drop-oldest，非法值在启动时报错
+        SlowConsumerPolicy configured = SlowConsumerPolicy.parse(defaultPolicy);
+        this.defaultPolicy = configured != null ? configured : SlowConsumerPolicy.DROP_OLDEST;
+        this.bufferSize = bufferSize;
+        this.maxDrops = maxDrops;
+        for (SlowConsumerPolicy policy : SlowConsumerPolicy.values()) {
+            droppedCounts.put(policy, new LongAdder());
+        }
+        
+        performanceMonitor.registerSlowConsumerMetrics(this);
+    }
+    
+    /**
+     * 为订阅者套上慢消费者保护；policy 为空时使用默认策略，conflationKey 仅在合并策略下使用
+     */
+    public <T> Flux<T> protect(Flux<T> source, SlowConsumerPolicy policy, Function<T, Object> conflationKey) {
+        SlowConsumerPolicy effective = policy != null ? policy : defaultPolicy;
+        return Flux.create(sink -> {
+            GuardedSubscriber<T> subscriber = new GuardedSubscriber<>(sink, effective, conflationKey);
+            sink.onRequest(n -> subscriber.drain());
+            sink.onDispose(subscriber::dispose);
+            subscriber.start(source);
+        });
+    }
+    
+    public SlowConsumerPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+    
+    public long getDroppedCount(SlowConsumerPolicy policy) {
+        return droppedCounts.get(policy).sum();
+    }
+    
+    public long getConflatedCount() {
+        return conflatedCount.sum();
+    }
+    
+    public long getDisconnectedCount() {
+        return disconnectedCount.sum();
+    }
+    
+    /**
+     * 单个订阅者：上游事件进入待发送队列，drain 只在下游有请求量时发送；
+     * 队列操作在订阅者自身的锁内完成，临界区只有一次入队或出队
+     */
+    private final class GuardedSubscriber<T> {
+        private final FluxSink<T> sink;
+        private final SlowConsumerPolicy policy;
+        private final Function<T, Object> conflationKey;
+        private final ArrayDeque<T> queue = new ArrayDeque<>();
+        private final LinkedHashMap<Object, T> latest = new LinkedHashMap<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        
+        private volatile Disposable upstream;
+        private volatile boolean done;
+        private volatile boolean closed;
+        private Throwable error;
+        private int drops;
+        
+        private GuardedSubscriber(FluxSink<T> sink, SlowConsumerPolicy policy, Function<T, Object> conflationKey) {
+            this.sink = sink;
+            this.policy = policy;
+            this.conflationKey = conflationKey;
+        }
+        
+        private void start(Flux<T> source) {
+            upstream = source.subscribe(this::offer, failure -> {
+                error = failure;
+                done = true;
+                drain();
+            }, () -> {
+                done = true;
+                drain();
+            });
+            if (closed) {
+                upstream.dispose();
+            }
+        }
+        
+        private void offer(T item) {
+            if (closed) {
+                return;
+            }
+            boolean disconnect = false;
+            synchronized (this) {
+                if (policy == SlowConsumerPolicy.CONFLATE) {
+                    // 先移除再放入，合并后的事件排在队尾，发送顺序与最新事件的发布顺序一致
+                    Object key = conflationKey.apply(item);
+                    if (latest.remove(key) != null) {
+                        conflatedCount.increment();
+                    } else if (latest.size() >= bufferSize) {
+                        removeEldest();
+                    }
+                    latest.put(key, item);
+                } else {
+                    if (queue.size() >= bufferSize) {
+                        queue.poll();
+                        disconnect = recordDrop();
+                    }
+                    queue.offer(item);
+                }
+            }
+            if (disconnect) {
+                disconnectedCount.increment();
+                System.out.println("慢消费者累计丢弃 " + drops + " 条事件，断开连接");
+                dispose();
+                sink.complete();
+                return;
+            }
+            drain();
+        }
+        
+        private void removeEldest() {
+            Iterator<T> iterator = latest.values().iterator();
+            iterator.next();
+            iterator.remove();
+            recordDrop();
+        }
+        
+        private boolean recordDrop() {
+            droppedCounts.get(policy).increment();
+            drops++;
+            return policy == SlowConsumerPolicy.DISCONNECT && drops >= maxDrops;
+        }
+        
+        private T poll() {
+            synchronized (this) {
+                if (policy == SlowConsumerPolicy.CONFLATE) {
+                    Iterator<T> iterator = latest.values().iterator();
+                    if (!iterator.hasNext()) {
+                        return null;
+                    }
+                    T item = iterator.next();
+                    iterator.remove();
+                    return item;
+                }
+                return queue.poll();
+            }
+        }
+        
+        private boolean isEmpty() {
+            synchronized (this) {
+                return queue.isEmpty() && latest.isEmpty();
+            }
+        }
+        
+        /**
+         * 同一时刻只有一个线程在发送，其他线程的调用只登记一次"还有工作"
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!closed && sink.requestedFromDownstream() > 0) {
+                    T item = poll();
+                    if (item == null) {
+                        break;
+                    }
+                    sink.next(item);
+                }
+                if (done && !closed) {
+                    if (error != null) {
+                        closed = true;
+                        sink.error(error);
+                    } else if (isEmpty()) {
+                        closed = true;
+                        sink.complete();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        private void dispose() {
+            closed = true;
+            Disposable subscription = upstream;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.javalaabs.webflux.streaming;
+
+import java.util.Locale;
+
+/**
+ * 慢消费者策略：订阅者的缓冲区写满时如何处理新事件
+ */
+public enum SlowConsumerPolicy {
+    
+    /**
+     * 丢弃最旧的事件
+     */
+    DROP_OLDEST("drop-oldest"),
+    
+    /**
+     * 按 userId 合并，每个用户只保留最新的一条（客户端只关心每个用户的最新状态）
+     */
+    CONFLATE("conflate"),
+    
+    /**
+     * 丢弃最旧的事件，累计丢弃达到上限后断开连接，由客户端带 Last-Event-ID 重连
+     */
+    DISCONNECT("disconnect");
+    
+    private final String value;
+    
+    SlowConsumerPolicy(String value) {
+        this.value = value;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    /**
+     * 解析策略名称（如 drop-oldest、conflate、disconnect），为空时返回 null 表示使用默认策略
+     */
+    public static SlowConsumerPolicy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+        for (SlowConsumerPolicy policy : values()) {
+            if (policy.value.equals(normalized)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("不支持的慢消费者策略: " + value);
+    }
+}
@@ -0,0 +1,193 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.domain.event.UserUpdateEvent;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户更新事件路由
+ * 按 userId 维护订阅者索引，另有一个接收全部事件的 firehose 频道；
+ * 每个事件只投递给订阅了该用户的连接和 firehose 订阅者，分发成本与匹配的订阅者数量成正比，
+ * 而不是与总连接数成正比。
+ * 发布的事件先进入 {@link EventHub}，在其串行的投递循环中分配单调递增的序号（写入事件 id）并路由，
+ * 并发发布时每个连接收到的序号仍然递增；最近的事件保留在重放缓冲区中供断线重连补发；
+ * 本节点发布的事件同时经 {@link ClusterEventBus} 发往其他节点，其他节点的事件只在本地投递
+ */
+@Component
+public class UserUpdateRouter {
+    
+    public static final String TOPIC = "user-updates";
+    
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private final Set<Subscriber> firehose = ConcurrentHashMap.newKeySet();
+    private final ReplayBuffer<UserUpdateEvent> replayBuffer;
+    private final EventHub<UserUpdateEvent, Sequenced<UserUpdateEvent>> hub;
+    private final ClusterEventBus eventBus;
+    private final SlowConsumerGuard slowConsumerGuard;
+    
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder deliveredCount = new LongAdder();
+    
+    public UserUpdateRouter(PerformanceMonitor performanceMonitor,
+                            ClusterEventBus eventBus,
+                            SlowConsumerGuard slowConsumerGuard,
+                            @Value("${webflux.streaming.replay-buffer-size:1024}") int replayBufferSize,
+                            @Value("${webflux.streaming.hub-capacity:10000}") int hubCapacity) {
+        this.slowConsumerGuard = slowConsumerGuard;
+        this.replayBuffer = new ReplayBuffer<>(replayBufferSize);
+        this.hub = new EventHub<>(TOPIC, hubCapacity, this::sequence);
+        this.eventBus = eventBus;
+        
+        // 唯一的订阅在投递循环的线程上同步执行路由
+        hub.asFlux().subscribe(this::route);
+        eventBus.register(TOPIC, UserUpdateEvent.class, this::publishLocal);
+        
+        performanceMonitor.registerEventHubMetrics(hub);
+        performanceMonitor.registerUpdateRouterMetrics(this);
+    }
+    
+    /**
+     * 订阅更新事件：userId 为空时订阅 firehose（全部事件），否则只接收该用户的事件
+     * 每个订阅者有独立的有界缓冲，缓冲满时按默认的慢消费者策略处理，不影响其他订阅者
+     */
+    public Flux<UserUpdateEvent> subscribe(String userId) {
+        return subscribe(userId, null, null).map(Sequenced::value);
+    }
+    
+    /**
+     * 从 lastEventId 之后恢复订阅：先补发重放缓冲区中该用户的事件，再衔接实时事件；
+     * lastEventId 为空时等同于普通订阅，请求的事件已不在缓冲区时先收到一个缺口标记；
+     * policy 指定该订阅者的慢消费者策略，为空时使用默认策略，合并策略按 userId 只保留最新事件
+     */
+    public Flux<Sequenced<UserUpdateEvent>> subscribe(String userId, String lastEventId, SlowConsumerPolicy policy) {
+        String key = userId == null || userId.isBlank() ? null : userId;
+        
+        Flux<Sequenced<UserUpdateEvent>> live = Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(sink);
+            register(key, subscriber);
+            sink.onDispose(() -> unregister(key, subscriber));
+        }, FluxSink.OverflowStrategy.BUFFER);
+        
+        Flux<Sequenced<UserUpdateEvent>> resumed =
+            replayBuffer.resume(lastEventId, event -> key == null || key.equals(event.getUserId()), live);
+        
+        return slowConsumerGuard.protect(resumed, policy, SequencedEvents::conflationKey);
+    }
+    
+    /**
+     * 发布事件：在本地投递并广播到其他节点
+     */
+    public void publish(UserUpdateEvent event) {
+        publishLocal(event);
+        eventBus.publish(TOPIC, event);
+    }
+    
+    /**
+     * 本地投递：交给事件中心排队，由投递循环分配序号并路由
+     */
+    private void publishLocal(UserUpdateEvent event) {
+        publishedCount.increment();
+        hub.emit(event);
+    }
+    
+    private Sequenced<UserUpdateEvent> sequence(UserUpdateEvent event) {
+        return replayBuffer.append(id -> {
+            event.setId(id);
+            return event;
+        });
+    }
+    
+    /**
+     * 只投递给该用户的订阅者和 firehose 订阅者
+     */
+    private void route(Sequenced<UserUpdateEvent> sequenced) {
+        UserUpdateEvent event = sequenced.value();
+        if (event.getUserId() != null) {
+            Set<Subscriber> subscribers = subscribersByUser.get(event.getUserId());
+            if (subscribers != null) {
+                deliver(subscribers, sequenced);
+            }
+        }
+        deliver(firehose, sequenced);
+    }
+    
+    public int getUserSubscriberCount() {
+        int count = 0;
+        for (Set<Subscriber> subscribers : subscribersByUser.values()) {
+            count += subscribers.size();
+        }
+        return count;
+    }
+    
+    public int getRoutedUserCount() {
+        return subscribersByUser.size();
+    }
+    
+    public int getFirehoseSubscriberCount() {
+        return firehose.size();
+    }
+    
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+    
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+    
+    public long getLastSequence() {
+        return replayBuffer.getLastSequence();
+    }
+    
+    private void deliver(Set<Subscriber> subscribers, Sequenced<UserUpdateEvent> event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.sink.next(event);
+            deliveredCount.increment();
+        }
+    }
+    
+    private void register(String userId, Subscriber subscriber) {
+        if (userId == null) {
+            firehose.add(subscriber);
+            return;
+        }
+        subscribersByUser.compute(userId, (key, subscribers) -> {
+            Set<Subscriber> target = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+    }
+    
+    /**
+     * 注销订阅者，某用户的最后一个订阅者离开时移除整个索引项
+     */
+    private void unregister(String userId, Subscriber subscriber) {
+        if (userId == null) {
+            firehose.remove(subscriber);
+            return;
+        }
+        subscribersByUser.computeIfPresent(userId, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+    
+    /**
+     * 订阅者：事件只从事件中心的投递循环送达，同一时刻只有一个线程调用 next
+     */
+    private static final class Subscriber {
+        private final FluxSink<Sequenced<UserUpdateEvent>> sink;
+        
+        private Subscriber(FluxSink<Sequenced<UserUpdateEvent>> sink) {
+            this.sink = sink;
+        }
+    }
+}
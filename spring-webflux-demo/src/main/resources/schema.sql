@@ -31,6 +31,14 @@ CREATE TABLE IF NOT EXISTS user_activities (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户活动记录表';
 
+-- 用户活动日汇总表（随活动批量写入增量维护）
+CREATE TABLE IF NOT EXISTS user_activity_rollup_daily (
+    bucket_date DATE NOT NULL COMMENT '日期',
+    action VARCHAR(50) NOT NULL COMMENT '动作类型',
+    activity_count BIGINT NOT NULL DEFAULT 0 COMMENT '活动次数',
+    PRIMARY KEY (bucket_date, action)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户活动日汇总表';
+
 SET FOREIGN_KEY_CHECKS = 1;
 
 -- 创建索引优化查询性能
@@ -39,6 +47,11 @@ CREATE INDEX idx_users_account_type ON users(account_type);
 CREATE INDEX idx_users_create_time ON users(create_time);
 CREATE INDEX idx_users_is_active ON users(is_active);
 
+-- 游标分页索引：(create_time, id) 组合保证排序稳定，翻页通过索引直接定位
+CREATE INDEX idx_users_create_time_id ON users(create_time, id);
+CREATE INDEX idx_users_active_create_time_id ON users(is_active, create_time, id);
+CREATE INDEX idx_users_account_type_create_time_id ON users(account_type, create_time, id);
+
 CREATE INDEX idx_user_activities_user_id ON user_activities(user_id);
 CREATE INDEX idx_user_activities_action ON user_activities(action);
 CREATE INDEX idx_user_activities_timestamp ON user_activities(timestamp);
@@ -1,8 +1,12 @@
 package com.javalaabs.webflux;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Spring WebFlux Demo 应用测试
@@ -11,8 +15,44 @@ import org.springframework.test.context.ActiveProfiles;
 @ActiveProfiles("test")
 class WebFluxDemoApplicationTests {
 
+    @Autowired
+    private WebTestClient webTestClient;
+
     @Test
     void contextLoads() {
         // 测试Spring上下文是否能正常加载
     }
+
+    @Test
+    void latencyEndpointIsNotShadowedByActuator() {
+        webTestClient.get().uri("/metrics/latency")
+                     .exchange()
+                     .expectStatus().isOk()
+                     .expectBody().jsonPath("$.routes").isArray();
+    }
+
+    @Test
+    void eventLoopWatchdogSnapshotIsReachable() {
+        webTestClient.get().uri("/metrics/event-loop")
+                     .exchange()
+                     .expectStatus().isOk()
+                     .expectBody().jsonPath("$.enabled").isEqualTo(false);
+    }
+
+    @Test
+    void routeTaggedRequestMetersReachPrometheus() throws InterruptedException {
+        webTestClient.get().uri("/api-docs").exchange().expectStatus().isOk();
+
+        // 请求指标在响应完成后记录，抓取时可能稍有滞后
+        String series = "webflux_request_duration_seconds_count{method=\"GET\",status=\"2xx\",uri=\"/api-docs\"} 1";
+        String scrape = "";
+        for (int attempt = 0; attempt < 20 && !scrape.contains(series); attempt++) {
+            Thread.sleep(100);
+            scrape = webTestClient.get().uri("/actuator/prometheus")
+                                  .exchange()
+                                  .expectStatus().isOk()
+                                  .expectBody(String.class).returnResult().getResponseBody();
+        }
+        assertTrue(scrape.contains(series), scrape);
+    }
 }
@@ -0,0 +1,59 @@
+package com.javalaabs.webflux.cache;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SingleFlight 请求合并测试
+ */
+class SingleFlightTest {
+    
+    @Test
+    void concurrentCallersShareOneLoad() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> source = Sinks.one();
+        
+        Mono<String> first = singleFlight.execute("u001", () -> {
+            loads.incrementAndGet();
+            return source.asMono();
+        });
+        Mono<String> second = singleFlight.execute("u001", () -> {
+            loads.incrementAndGet();
+            return source.asMono();
+        });
+        
+        StepVerifier.create(Mono.zip(first, second))
+                    .then(() -> source.tryEmitValue("张三"))
+                    .assertNext(tuple -> {
+                        assertEquals("张三", tuple.getT1());
+                        assertEquals("张三", tuple.getT2());
+                    })
+                    .verifyComplete();
+        
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+    
+    @Test
+    void completedLoadIsNotReused() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        
+        StepVerifier.create(singleFlight.execute("u001", () -> Mono.fromCallable(loads::incrementAndGet)))
+                    .expectNext(1)
+                    .verifyComplete();
+        StepVerifier.create(singleFlight.execute("u001", () -> Mono.fromCallable(loads::incrementAndGet)))
+                    .expectNext(2)
+                    .verifyComplete();
+        
+        assertEquals(2, singleFlight.getExecutionCount());
+    }
+}
@@ -0,0 +1,51 @@
+package com.javalaabs.webflux.config;
+
+import com.javalaabs.webflux.handler.UserHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户路由匹配顺序测试
+ */
+class RouterConfigurationTest {
+    
+    private final UserHandler userHandler = mock(UserHandler.class);
+    private final WebTestClient client =
+        WebTestClient.bindToRouterFunction(new RouterConfiguration().userRoutes(userHandler)).build();
+    
+    @Test
+    void literalPathsAreMatchedBeforeUserId() {
+        when(userHandler.getUser(any())).thenReturn(handledBy("getUser"));
+        when(userHandler.sseEndpoint(any())).thenReturn(handledBy("sseEndpoint"));
+        when(userHandler.streamUserActivities(any())).thenReturn(handledBy("streamUserActivities"));
+        when(userHandler.getStatistics(any())).thenReturn(handledBy("getStatistics"));
+        when(userHandler.searchUsers(any())).thenReturn(handledBy("searchUsers"));
+        when(userHandler.exportUsers(any())).thenReturn(handledBy("exportUsers"));
+        
+        expectHandler("/api/users/sse", MediaType.TEXT_EVENT_STREAM, "sseEndpoint");
+        expectHandler("/api/users/stream", MediaType.TEXT_EVENT_STREAM, "streamUserActivities");
+        expectHandler("/api/users/statistics", MediaType.APPLICATION_JSON, "getStatistics");
+        expectHandler("/api/users/search?q=li", MediaType.APPLICATION_JSON, "searchUsers");
+        expectHandler("/api/users/export", MediaType.APPLICATION_JSON, "exportUsers");
+        expectHandler("/api/users/42", MediaType.APPLICATION_JSON, "getUser");
+    }
+    
+    private void expectHandler(String uri, MediaType accept, String handler) {
+        client.get().uri(uri)
+              .accept(accept)
+              .exchange()
+              .expectStatus().isOk()
+              .expectBody(String.class).isEqualTo(handler);
+    }
+    
+    private static Mono<ServerResponse> handledBy(String handler) {
+        return ServerResponse.ok().contentType(MediaType.TEXT_PLAIN).bodyValue(handler);
+    }
+}
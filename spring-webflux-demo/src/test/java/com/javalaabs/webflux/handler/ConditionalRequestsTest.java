@@ -0,0 +1,40 @@
+package com.javalaabs.webflux.handler;
+
+import com.javalaabs.webflux.domain.dto.UserVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ConditionalRequests 条件请求判断测试
+ */
+class ConditionalRequestsTest {
+    
+    private final UserVersion version = new UserVersion("u1", Instant.parse("2024-05-01T10:15:30.250Z"));
+    
+    @Test
+    void ifNoneMatchUsesWeakComparisonAndTakesPrecedence() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_NONE_MATCH, "\"other\", " + version.etag().substring(2));
+        assertTrue(ConditionalRequests.notModified(headers, version.etag(), version.lastModified()));
+        
+        // ETag 不匹配时忽略 If-Modified-Since
+        headers.set(HttpHeaders.IF_NONE_MATCH, "W/\"u1-stale\"");
+        headers.setIfModifiedSince(version.lastModified());
+        assertFalse(ConditionalRequests.notModified(headers, version.etag(), version.lastModified()));
+    }
+    
+    @Test
+    void ifModifiedSinceComparesWholeSeconds() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(Instant.parse("2024-05-01T10:15:30Z"));
+        assertTrue(ConditionalRequests.notModified(headers, version.etag(), version.lastModified()));
+        
+        headers.setIfModifiedSince(Instant.parse("2024-05-01T10:15:29Z"));
+        assertFalse(ConditionalRequests.notModified(headers, version.etag(), version.lastModified()));
+    }
+}
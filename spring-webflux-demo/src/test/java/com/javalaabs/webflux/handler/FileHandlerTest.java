@@ -0,0 +1,69 @@
+package com.javalaabs.webflux.handler;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import com.javalaabs.webflux.storage.AvatarStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * FileHandler 条件请求与 Range 测试
+ */
+class FileHandlerTest {
+    
+    private static final String HASH = "a".repeat(64);
+    
+    @TempDir
+    Path directory;
+    
+    private WebTestClient client;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        AvatarStorage storage = new AvatarStorage(new PerformanceMonitor(new SimpleMeterRegistry()),
+                                                  directory, DataSize.ofMegabytes(1));
+        Files.writeString(directory.resolve(HASH + ".png"), "0123456789");
+        FileHandler handler = new FileHandler(storage);
+        client = WebTestClient.bindToRouterFunction(RouterFunctions.route(GET("/api/files/{fileName}"), handler::getFile))
+                              .build();
+    }
+    
+    @Test
+    void servesFileWithStrongETagAndNotModified() {
+        client.get().uri("/api/files/" + HASH + ".png")
+              .exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + HASH + "\"")
+              .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable")
+              .expectBody(String.class).isEqualTo("0123456789");
+        
+        client.get().uri("/api/files/" + HASH + ".png")
+              .header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\"")
+              .exchange()
+              .expectStatus().isNotModified();
+    }
+    
+    @Test
+    void servesRequestedRange() {
+        client.get().uri("/api/files/" + HASH + ".png")
+              .header(HttpHeaders.RANGE, "bytes=2-4")
+              .exchange()
+              .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+              .expectBody(String.class).isEqualTo("234");
+        
+        client.get().uri("/api/files/../secret.png")
+              .exchange()
+              .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,77 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AccessLog 环形缓冲区与采样测试
+ */
+class AccessLogTest {
+    
+    private final PerformanceMonitor performanceMonitor = new PerformanceMonitor(new SimpleMeterRegistry());
+    private final MockServerHttpRequest request = MockServerHttpRequest.get("/api/users/1")
+                                                                       .header("User-Agent", "test \"agent\"")
+                                                                       .build();
+    
+    @Test
+    void dropsWhenRingIsFullAndDrainsOnShutdown() {
+        AccessLog accessLog = new AccessLog(performanceMonitor, true, 1.0, 4, Duration.ofHours(1));
+        
+        for (int i = 0; i < 5; i++) {
+            accessLog.record(request, AccessLog.nextRequestId(), "/api/users/{id}", 200, 1_500_000, 10, "complete", null);
+        }
+        assertEquals(4, accessLog.getPending());
+        assertEquals(1, accessLog.getDroppedCount());
+        
+        accessLog.shutdown();
+        assertEquals(4, accessLog.getWrittenCount());
+        assertEquals(0, accessLog.getPending());
+    }
+    
+    @Test
+    void samplingSkipsOnlySuccessfulRequests() {
+        AccessLog accessLog = new AccessLog(performanceMonitor, true, 0.0, 16, Duration.ofHours(1));
+        
+        accessLog.record(request, "ok", "/api/users/{id}", 200, 1_000, 0, "complete", null);
+        accessLog.record(request, "missing", "/api/users/{id}", 404, 1_000, 0, "complete", null);
+        accessLog.record(request, "failed", null, 500, 1_000, 0, "error", new IllegalStateException("boom"));
+        
+        assertEquals(1, accessLog.getSampledOutCount());
+        assertEquals(2, accessLog.getPending());
+        accessLog.shutdown();
+    }
+    
+    @Test
+    void requestIdIsEscapedLikeOtherFields() {
+        AccessLog accessLog = new AccessLog(performanceMonitor, true, 1.0, 4, Duration.ofHours(1));
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            accessLog.record(request, "abc status=200 route=/forged", null, 404, 1_000, 0, "complete", null);
+            accessLog.shutdown();
+        } finally {
+            System.setOut(originalOut);
+        }
+        
+        String line = captured.toString(StandardCharsets.UTF_8);
+        assertTrue(line.contains(" id=\"abc status=200 route=/forged\" "), line);
+        assertTrue(line.contains("\" method=GET "), line);
+    }
+    
+    @Test
+    void generatedRequestIdsAreSixteenHexDigits() {
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(AccessLog.nextRequestId().matches("[0-9a-f]{16}"));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EventLoopWatchdog 阻塞检测测试
+ */
+class EventLoopWatchdogTest {
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsBlockedThreadWithItsStack() throws Exception {
+        EventLoopWatchdog watchdog = new EventLoopWatchdog(new PerformanceMonitor(new SimpleMeterRegistry()), null,
+                                                           true, Duration.ofMillis(10), Duration.ofMillis(50));
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "test-loop"));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            watchdog.watch("test", executor);
+            watchdog.begin();
+            
+            // 先等探针执行过一次，看门狗才知道该执行器对应的线程
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (lastLagMs(watchdog) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            long before = watchdog.getBlockedCount("test");
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            
+            deadline = System.currentTimeMillis() + 5_000;
+            while (watchdog.getBlockedCount("test") == before && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(before + 1, watchdog.getBlockedCount("test"));
+            
+            List<Map<String, Object>> offenders = (List<Map<String, Object>>) watchdog.snapshot().get("lastOffenders");
+            Map<String, Object> offender = offenders.get(offenders.size() - 1);
+            assertEquals("test-loop", offender.get("thread"));
+            List<String> stack = (List<String>) offender.get("stack");
+            assertTrue(stack.stream().anyMatch(frame -> frame.contains("EventLoopWatchdogTest")), stack::toString);
+        } finally {
+            release.countDown();
+            watchdog.shutdown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static double lastLagMs(EventLoopWatchdog watchdog) {
+        Map<String, Map<String, Object>> pools = (Map<String, Map<String, Object>>) watchdog.snapshot().get("pools");
+        return (double) pools.get("test").get("maxLagMs");
+    }
+}
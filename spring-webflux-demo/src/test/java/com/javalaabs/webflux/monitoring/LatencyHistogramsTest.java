@@ -0,0 +1,78 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * LatencyHistograms 滚动窗口与 SLO 消耗速率测试
+ */
+class LatencyHistogramsTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LatencyHistograms histograms = new LatencyHistograms(registry, Duration.ofHours(1), 10, "90ms", 0.9);
+    
+    @AfterEach
+    void tearDown() {
+        histograms.shutdown();
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsPercentilesAndBurnRatePerWindow() {
+        for (int i = 1; i <= 100; i++) {
+            histograms.record("/api/users/{id}", 200, Duration.ofMillis(i).toNanos());
+        }
+        histograms.rotate();
+        
+        Map<String, Object> route = ((List<Map<String, Object>>) histograms.snapshot("/api/users/{id}").get("routes")).get(0);
+        Map<String, Object> status = ((List<Map<String, Object>>) route.get("statuses")).get(0);
+        Map<String, Object> window = (Map<String, Object>) ((Map<String, Object>) status.get("windows")).get("1m");
+        
+        assertEquals("2xx", status.get("status"));
+        assertEquals(100L, window.get("count"));
+        assertEquals(50.0, (double) window.get("p50"), 1.0);
+        assertEquals(100.0, (double) window.get("max"), 1.0);
+        
+        // 10% 的请求超过 90ms，错误预算为 10%，消耗速率为 1
+        assertEquals(1.0, (double) ((Map<String, Object>) route.get("burnRate")).get("15m"), 0.01);
+        assertEquals(10, registry.get("webflux.slo.requests").tag("outcome", "bad").counter().count());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsEverySliceAcrossEmptyRotations() {
+        LatencyHistograms rolling = new LatencyHistograms(registry, Duration.ofSeconds(10), 10, "", 0.999);
+        try {
+            int[] sliceCounts = {1, 0, 5, 7};
+            for (int count : sliceCounts) {
+                for (int i = 0; i < count; i++) {
+                    rolling.record("/api/users", 200, Duration.ofMillis(5).toNanos());
+                }
+                rolling.rotate();
+            }
+            
+            Map<String, Object> route = ((List<Map<String, Object>>) rolling.snapshot("/api/users").get("routes")).get(0);
+            Map<String, Object> status = ((List<Map<String, Object>>) route.get("statuses")).get(0);
+            Map<String, Object> windows = (Map<String, Object>) status.get("windows");
+            
+            assertEquals(13L, ((Map<String, Object>) windows.get("1m")).get("count"));
+            assertEquals(13L, ((Map<String, Object>) windows.get("15m")).get("count"));
+            
+            // 轮转之后新记录的请求只进入下一个切片
+            rolling.record("/api/users", 200, Duration.ofMillis(5).toNanos());
+            route = ((List<Map<String, Object>>) rolling.snapshot("/api/users").get("routes")).get(0);
+            status = ((List<Map<String, Object>>) route.get("statuses")).get(0);
+            windows = (Map<String, Object>) status.get("windows");
+            assertEquals(13L, ((Map<String, Object>) windows.get("1m")).get("count"));
+        } finally {
+            rolling.shutdown();
+        }
+    }
+}
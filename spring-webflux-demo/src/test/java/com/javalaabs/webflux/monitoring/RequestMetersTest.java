@@ -0,0 +1,49 @@
+package com.javalaabs.webflux.monitoring;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * RequestMeters 路由模板与基数上限测试
+ */
+class RequestMetersTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestMeters meters = new RequestMeters(registry, 2);
+    
+    @Test
+    void groupsByRouteMethodAndStatusClass() {
+        meters.record(Timer.start(registry), "/api/users/{id}", "GET", 200);
+        meters.record(Timer.start(registry), "/api/users/{id}", "GET", 204);
+        meters.record(Timer.start(registry), "/api/users/{id}", "GET", 404);
+        
+        assertEquals(2, registry.get("webflux.request.duration")
+                                .tags("uri", "/api/users/{id}", "method", "GET", "status", "2xx")
+                                .timer().count());
+        assertEquals(1, registry.get("webflux.error.count")
+                                .tags("uri", "/api/users/{id}", "status", "4xx")
+                                .counter().count());
+        assertEquals(1, meters.getErrorCount());
+    }
+    
+    @Test
+    void routesBeyondTheCapShareOneBucket() {
+        meters.record(Timer.start(registry), "/a", "GET", 200);
+        meters.record(Timer.start(registry), null, "GET", 404);
+        meters.record(Timer.start(registry), "/c", "GET", 200);
+        meters.record(Timer.start(registry), "/d", "BREW", 200);
+        
+        assertEquals(2, meters.getRouteCount());
+        assertNotNull(registry.find("webflux.request.duration").tag("uri", RequestMeters.UNMATCHED_ROUTE).timer());
+        assertEquals(1, registry.get("webflux.request.duration")
+                                .tags("uri", RequestMeters.OVERFLOW_ROUTE, "method", "GET")
+                                .timer().count());
+        assertEquals(1, registry.get("webflux.request.duration")
+                                .tags("uri", RequestMeters.OVERFLOW_ROUTE, "method", "OTHER")
+                                .timer().count());
+    }
+}
@@ -0,0 +1,78 @@
+package com.javalaabs.webflux.search;
+
+import com.javalaabs.webflux.domain.dto.UserDTO;
+import com.javalaabs.webflux.domain.entity.User;
+import com.javalaabs.webflux.domain.event.UserChangedEvent;
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import com.javalaabs.webflux.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserSearchIndex 对账测试
+ */
+class UserSearchIndexTest {
+    
+    private final ReactiveUserRepository userRepository = mock(ReactiveUserRepository.class);
+    private final UserSearchIndex index = new UserSearchIndex(userRepository, mock(PerformanceMonitor.class),
+                                                              true, Duration.ofMinutes(5));
+    
+    @Test
+    void reconcileAppliesWritesMadeOnOtherNodes() {
+        when(userRepository.findAll()).thenReturn(Flux.just(user("1", "alice"), user("2", "bob")));
+        StepVerifier.create(index.reconcile()).expectNext(2L).verifyComplete();
+        assertEquals(Optional.of(List.of("2")), index.search("bob", 0, 10));
+        
+        // 其他节点改名了 1、删除了 2、新建了 3，本节点没有收到任何事件
+        when(userRepository.findAll()).thenReturn(Flux.just(user("1", "alicia"), user("3", "carol")));
+        StepVerifier.create(index.reconcile()).expectNext(2L).verifyComplete();
+        
+        assertEquals(Optional.of(List.of()), index.search("bob", 0, 10));
+        assertEquals(Optional.of(List.of("1")), index.search("alicia", 0, 10));
+        assertEquals(Optional.of(List.of("3")), index.search("carol", 0, 10));
+        assertEquals(2, index.getDocumentCount());
+    }
+    
+    @Test
+    void changesDuringReconcileAreNotOverwritten() {
+        when(userRepository.findAll()).thenReturn(Flux.just(user("1", "alice"), user("2", "bob")));
+        StepVerifier.create(index.reconcile()).expectNext(2L).verifyComplete();
+        
+        Sinks.Many<User> rows = Sinks.many().unicast().onBackpressureBuffer();
+        when(userRepository.findAll()).thenReturn(rows.asFlux());
+        StepVerifier.create(index.reconcile())
+                    .then(() -> {
+                        // 加载开始后本节点的写入：2 被删除、3 被创建，1 被改名；加载到的仍是旧数据
+                        index.onUserChanged(UserChangedEvent.deleted(dto("2", "bob")));
+                        index.onUserChanged(UserChangedEvent.created(dto("3", "carol")));
+                        index.onUserChanged(UserChangedEvent.updated(dto("1", "alice"), dto("1", "alicia")));
+                        rows.tryEmitNext(user("1", "alice"));
+                        rows.tryEmitNext(user("2", "bob"));
+                        rows.tryEmitComplete();
+                    })
+                    .expectNext(2L)
+                    .verifyComplete();
+        
+        assertEquals(Optional.of(List.of()), index.search("bob", 0, 10));
+        assertEquals(Optional.of(List.of("1")), index.search("alicia", 0, 10));
+        assertEquals(Optional.of(List.of("3")), index.search("carol", 0, 10));
+    }
+    
+    private static User user(String id, String name) {
+        return User.builder().id(id).name(name).email(id + "@example.com").build();
+    }
+    
+    private static UserDTO dto(String id, String name) {
+        return UserDTO.builder().id(id).name(name).email(id + "@example.com").build();
+    }
+}
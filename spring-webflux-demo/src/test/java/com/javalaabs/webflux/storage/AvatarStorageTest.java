@@ -0,0 +1,101 @@
+package com.javalaabs.webflux.storage;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AvatarStorage 内容寻址与大小限制测试
+ */
+class AvatarStorageTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void duplicateUploadsShareOneFile() throws Exception {
+        AvatarStorage storage = storage(1024);
+        
+        String first = storage.store(filePart("a.png", "hello ", "avatar")).block();
+        String second = storage.store(filePart("b.png", "hello avatar")).block();
+        
+        assertEquals(first, second);
+        assertTrue(first.endsWith(".png"));
+        assertEquals("hello avatar", Files.readString(storage.resolve(first)));
+        assertEquals(1, storage.getStoredCount());
+        assertEquals(1, storage.getDeduplicatedCount());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+    
+    @Test
+    void oversizedUploadIsRejectedAndCleanedUp() throws Exception {
+        AvatarStorage storage = storage(8);
+        
+        StepVerifier.create(storage.store(filePart("a.png", "12345", "67890", "never read")))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        
+        assertEquals(1, storage.getRejectedCount());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    void cancelledUploadLeavesNoTempFile() throws Exception {
+        AvatarStorage storage = storage(1024);
+        Flux<DataBuffer> content = Flux.concat(filePart("a.png", "partial").content(), Flux.never());
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.filename()).thenReturn("a.png");
+        when(filePart.content()).thenReturn(content);
+        
+        // 模拟客户端上传中途断开
+        StepVerifier.create(storage.store(filePart))
+                    .thenAwait(Duration.ofMillis(200))
+                    .thenCancel()
+                    .verify();
+        
+        long deadline = System.currentTimeMillis() + 2_000;
+        long remaining;
+        do {
+            Thread.sleep(20);
+            try (var files = Files.list(directory)) {
+                remaining = files.count();
+            }
+        } while (remaining > 0 && System.currentTimeMillis() < deadline);
+        assertEquals(0, remaining);
+    }
+    
+    private AvatarStorage storage(long maxBytes) {
+        return new AvatarStorage(new PerformanceMonitor(new SimpleMeterRegistry()), directory, DataSize.ofBytes(maxBytes));
+    }
+    
+    private static FilePart filePart(String filename, String... chunks) {
+        Flux<DataBuffer> content = Flux.fromArray(chunks)
+                                       .map(chunk -> DefaultDataBufferFactory.sharedInstance
+                                           .wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.filename()).thenReturn(filename);
+        when(filePart.content()).thenReturn(content);
+        return filePart;
+    }
+}
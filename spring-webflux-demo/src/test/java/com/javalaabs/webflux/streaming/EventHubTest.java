@@ -0,0 +1,94 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * EventHub 并发发射测试
+ */
+class EventHubTest {
+    
+    @Test
+    void concurrentEmittersLoseNoEvents() throws Exception {
+        EventHub<Integer, Integer> hub = new EventHub<>("test", 100_000, Function.identity());
+        int producers = 8;
+        int perProducer = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        
+        Flux<Integer> received = hub.asFlux().take(producers * perProducer);
+        StepVerifier.create(received.count())
+                    .then(() -> {
+                        for (int p = 0; p < producers; p++) {
+                            executor.submit(() -> {
+                                start.await();
+                                for (int i = 0; i < perProducer; i++) {
+                                    hub.emit(i);
+                                }
+                                return null;
+                            });
+                        }
+                        start.countDown();
+                    })
+                    .expectNext((long) producers * perProducer)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+        executor.shutdown();
+        
+        assertEquals(producers * perProducer, hub.getEmittedCount());
+        assertEquals(0, hub.getDroppedCount());
+        assertEquals(0, hub.getQueueDepth());
+    }
+    
+    @Test
+    void sequenceAssignedInStageIsDeliveredInOrder() throws Exception {
+        ReplayBuffer<Integer> buffer = new ReplayBuffer<>(16);
+        EventHub<Integer, Sequenced<Integer>> hub = new EventHub<>("test", 100_000, buffer::append);
+        int producers = 8;
+        int perProducer = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong lastSequence = new AtomicLong();
+        AtomicLong outOfOrder = new AtomicLong();
+        
+        Flux<Sequenced<Integer>> received = hub.asFlux()
+                                               .doOnNext(event -> {
+                                                   if (event.sequence() != lastSequence.get() + 1) {
+                                                       outOfOrder.incrementAndGet();
+                                                   }
+                                                   lastSequence.set(event.sequence());
+                                               })
+                                               .take(producers * perProducer);
+        StepVerifier.create(received.count())
+                    .then(() -> {
+                        for (int p = 0; p < producers; p++) {
+                            executor.submit(() -> {
+                                start.await();
+                                for (int i = 0; i < perProducer; i++) {
+                                    hub.emit(i);
+                                }
+                                return null;
+                            });
+                        }
+                        start.countDown();
+                    })
+                    .expectNext((long) producers * perProducer)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+        executor.shutdown();
+        
+        assertEquals(0, outOfOrder.get());
+        assertEquals(producers * perProducer, lastSequence.get());
+    }
+}
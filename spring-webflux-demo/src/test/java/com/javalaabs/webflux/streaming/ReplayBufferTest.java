@@ -0,0 +1,67 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.streaming.ReplayBuffer.Sequenced;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ReplayBuffer 断线续传测试
+ */
+class ReplayBufferTest {
+    
+    @Test
+    void resumeReplaysMissedEventsThenContinuesLive() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(8, "t");
+        Sinks.Many<Sequenced<String>> live = Sinks.many().multicast().directBestEffort();
+        buffer.append("a");
+        buffer.append("b");
+        buffer.append("c");
+        
+        StepVerifier.create(buffer.resume("t-1", value -> true, live.asFlux()))
+                    .assertNext(event -> assertEquals("b", event.value()))
+                    .assertNext(event -> assertEquals("c", event.value()))
+                    .then(() -> live.tryEmitNext(buffer.append("d")))
+                    .assertNext(event -> {
+                        assertEquals("t-4", event.id());
+                        assertEquals("d", event.value());
+                    })
+                    .thenCancel()
+                    .verify();
+    }
+    
+    @Test
+    void resumeFromOverwrittenSequenceEmitsGapFirst() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(2, "t");
+        Sinks.Many<Sequenced<String>> live = Sinks.many().multicast().directBestEffort();
+        for (String value : new String[] {"a", "b", "c", "d"}) {
+            buffer.append(value);
+        }
+        
+        StepVerifier.create(buffer.resume("t-1", value -> true, live.asFlux()))
+                    .assertNext(event -> {
+                        assertTrue(event.gap());
+                        assertEquals("t-2", event.id());
+                    })
+                    .assertNext(event -> assertEquals("c", event.value()))
+                    .assertNext(event -> assertEquals("d", event.value()))
+                    .thenCancel()
+                    .verify();
+    }
+    
+    @Test
+    void resumeFromForeignEpochEmitsGap() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(8, "t");
+        Sinks.Many<Sequenced<String>> live = Sinks.many().multicast().directBestEffort();
+        buffer.append("a");
+        
+        StepVerifier.create(buffer.resume("other-1", value -> true, live.asFlux()))
+                    .assertNext(event -> assertTrue(event.gap()))
+                    .assertNext(event -> assertEquals("a", event.value()))
+                    .thenCancel()
+                    .verify();
+    }
+}
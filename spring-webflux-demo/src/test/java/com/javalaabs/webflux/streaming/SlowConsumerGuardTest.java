@@ -0,0 +1,63 @@
+package com.javalaabs.webflux.streaming;
+
+import com.javalaabs.webflux.monitoring.PerformanceMonitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SlowConsumerGuard 慢消费者策略测试
+ */
+class SlowConsumerGuardTest {
+    
+    private final SlowConsumerGuard guard =
+        new SlowConsumerGuard(new PerformanceMonitor(new SimpleMeterRegistry()), "drop-oldest", 2, 2);
+    
+    @Test
+    void conflateKeepsLatestEventPerKey() {
+        Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+        
+        StepVerifier.create(guard.protect(source.asFlux(), SlowConsumerPolicy.CONFLATE, value -> value.charAt(0)), 0)
+                    .then(() -> {
+                        source.tryEmitNext("a1");
+                        source.tryEmitNext("b1");
+                        source.tryEmitNext("a2");
+                    })
+                    .thenRequest(2)
+                    .expectNext("b1", "a2")
+                    .then(source::tryEmitComplete)
+                    .verifyComplete();
+        
+        assertEquals(1, guard.getConflatedCount());
+    }
+    
+    @Test
+    void disconnectCompletesAfterTooManyDrops() {
+        Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+        
+        StepVerifier.create(guard.protect(source.asFlux(), SlowConsumerPolicy.DISCONNECT, value -> value), 0)
+                    .then(() -> {
+                        for (String value : new String[] {"1", "2", "3", "4"}) {
+                            source.tryEmitNext(value);
+                        }
+                    })
+                    .verifyComplete();
+        
+        assertEquals(2, guard.getDroppedCount(SlowConsumerPolicy.DISCONNECT));
+        assertEquals(1, guard.getDisconnectedCount());
+    }
+    
+    @Test
+    void blankDefaultPolicyFallsBackToDropOldest() {
+        SlowConsumerGuard blank = new SlowConsumerGuard(new PerformanceMonitor(new SimpleMeterRegistry()), " ", 2, 2);
+        
+        assertEquals(SlowConsumerPolicy.DROP_OLDEST, blank.getDefaultPolicy());
+        StepVerifier.create(blank.protect(Flux.just("a", "b"), null, value -> value))
+                    .expectNext("a", "b")
+                    .verifyComplete();
+    }
+}